@@ -0,0 +1,115 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Logs benchmark coaches in through the real protocol and builds the rosters and command batches the workloads replay.
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BenchCoaches {
+	private static final String[] POSITIONS = {"GK", "DF", "MF", "FW"};
+
+	private BenchCoaches() {
+	}
+
+	//Keeps timers from pinging or dropping the coaches during a run, and keeps login events out of the JMH output.
+	public static void quietServer() {
+		CoachSession.configureHeartbeat(3600, 7200);
+		ServerLog.setLevel(ServerLog.Level.WARN);
+	}
+
+	//Creates a room with its own roster of the given size in a temporary rooms directory, returns the room's name.
+	//The default roster is SoccerPlayers.xml in the working directory, which a benchmark should not depend on or overwrite.
+	public static String roomWithRoster(String room, int players) throws IOException {
+		Path directory = Files.createTempDirectory("bench-rooms");
+		directory.toFile().deleteOnExit();
+		Path roster = directory.resolve(room + ".xml");
+		writeXml(roster.toString(), roster(players));
+		roster.toFile().deleteOnExit();
+		LineupRooms.configure(directory);
+		return room;
+	}
+
+	//Creates a session behind the sink and logs it in, in binary when asked, opted in to the shared board when asked.
+	public static CoachSession login(SinkConnection sink, String name, boolean binary, boolean sharingBoard) throws IOException {
+		return login(sink, null, name, binary, sharingBoard);
+	}
+
+	//Same as login, joining the given room first (null for the default room).
+	public static CoachSession login(SinkConnection sink, String room, String name, boolean binary, boolean sharingBoard)
+			throws IOException {
+		CoachSession session = new CoachSession(sink);
+		feed(session, text(WireProtocol.TEXT_V2_REQUEST));
+		if (room != null) {
+			feed(session, text(WireProtocol.JOIN_ROOM + " " + room));
+		}
+		feed(session, text("Coach name:", name));
+		if (sharingBoard) {
+			feed(session, text("SHARE_BOARD", "ON"));
+		}
+		if (binary) {
+			feed(session, text(WireProtocol.BINARY_REQUEST, WireProtocol.BINARY_START));
+		}
+		return session;
+	}
+
+	//Decodes every line or frame in the buffer, returns how many were handled.
+	public static int feed(CoachSession session, ByteBuffer in) throws IOException {
+		int handled = 0;
+		while (session.decodeNext(in)) {
+			handled++;
+		}
+		return handled;
+	}
+
+	//Encodes lines the way a text client sends them.
+	public static ByteBuffer text(String... lines) {
+		StringBuilder message = new StringBuilder();
+		for (String line : lines) {
+			message.append(line).append('\n');
+		}
+		return ByteBuffer.wrap(message.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	//Concatenates frames the way a binary client sends them.
+	public static ByteBuffer frames(WireProtocol.FrameWriter... frames) {
+		List<byte[]> encoded = new ArrayList<>(frames.length);
+		int length = 0;
+		for (WireProtocol.FrameWriter frame : frames) {
+			byte[] bytes = frame.toFrame();
+			encoded.add(bytes);
+			length += bytes.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		for (byte[] bytes : encoded) {
+			buffer.put(bytes);
+		}
+		return buffer.flip();
+	}
+
+	//Numbers 1 to size, positions in rotation.
+	public static List<Player> roster(int size) {
+		List<Player> players = new ArrayList<>(size);
+		for (int i = 1; i <= size; i++) {
+			players.add(new Player(i, "Player " + i, POSITIONS[i % POSITIONS.length].intern()));
+		}
+		return players;
+	}
+
+	//Writes a roster in the layout of SoccerPlayers.xml.
+	public static void writeXml(String filename, List<Player> players) throws IOException {
+		try (Writer out = new FileWriter(filename, StandardCharsets.UTF_8)) {
+			out.write("<ROSTER>\r\n");
+			for (Player player : players) {
+				out.write("\t<PLAYER>\r\n\t\t<NUMBER>\r\n\t\t\t" + player.getNumber() + "\r\n\t\t</NUMBER>\r\n"
+						+ "\t\t<NAME>\r\n\t\t" + player.getName() + "\r\n\t\t</NAME>\r\n"
+						+ "\t\t<POSITION>\r\n\t\t\t" + player.getPosition() + "\r\n\t\t</POSITION>\r\n\t</PLAYER>\r\n");
+			}
+			out.write("</ROSTER>\r\n");
+		}
+	}
+}
@@ -0,0 +1,43 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Replays the same batch as TextCommandWorkload as binary frames.
+import java.nio.ByteBuffer;
+
+import lineup.bench.Workload;
+
+public class BinaryCommandWorkload implements Workload {
+	private final SinkConnection sink = new SinkConnection();
+	private CoachSession session;
+	private ByteBuffer commands;
+
+	@Override
+	public void setUp(int size) throws Exception {
+		BenchCoaches.quietServer();
+		//Offers expire at once, so each post sweeps the previous one and the target's mailbox never fills up
+		LineupMailboxes.configure(0, null);
+		String room = BenchCoaches.roomWithRoster("binary-commands", 100);
+		session = BenchCoaches.login(sink, room, "binary-parser", true, false);
+		BenchCoaches.login(new SinkConnection(), room, "binary-target", true, false);
+		WireProtocol.FrameWriter moves = new WireProtocol.FrameWriter(WireProtocol.MOVE_PLAYERS).putVarint(CoachLineup.MAX_PLAYERS);
+		WireProtocol.FrameWriter lineup = new WireProtocol.FrameWriter(WireProtocol.SEND_LINEUP_TO).putString("binary-target")
+				.putVarint(CoachLineup.MAX_PLAYERS);
+		for (int number = 1; number <= CoachLineup.MAX_PLAYERS; number++) {
+			moves.putVarint(number).putShort(WireProtocol.toFieldUnits(number * 31.5)).putShort(WireProtocol.toFieldUnits(number * 17.25));
+			lineup.putVarint(number).putShort(WireProtocol.toFieldUnits(number * 31.5)).putShort(WireProtocol.toFieldUnits(number * 17.25));
+		}
+		commands = BenchCoaches.frames(
+				new WireProtocol.FrameWriter(WireProtocol.SHARE_BOARD).putByte(0),
+				new WireProtocol.FrameWriter(WireProtocol.ADD_PLAYER).putVarint(1),
+				moves,
+				new WireProtocol.FrameWriter(WireProtocol.REMOVE_PLAYER).putVarint(1),
+				lineup,
+				new WireProtocol.FrameWriter(WireProtocol.GET_LINEUP),
+				new WireProtocol.FrameWriter(WireProtocol.PONG));
+	}
+
+	@Override
+	public Object run() throws Exception {
+		commands.rewind();
+		BenchCoaches.feed(session, commands);
+		return sink.getMessages();
+	}
+}
@@ -0,0 +1,31 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One binary coach drags a player on the shared board, every other sharing coach gets the move.
+import java.nio.ByteBuffer;
+
+import lineup.bench.Workload;
+
+public class FanOutWorkload implements Workload {
+	private SinkConnection[] receivers;
+	private CoachSession sender;
+	private ByteBuffer move;
+
+	@Override
+	public void setUp(int size) throws Exception {
+		BenchCoaches.quietServer();
+		receivers = new SinkConnection[size];
+		for (int i = 0; i < size; i++) {
+			receivers[i] = new SinkConnection();
+			BenchCoaches.login(receivers[i], "receiver-" + i, i % 2 == 0, true);
+		}
+		sender = BenchCoaches.login(new SinkConnection(), "sender", true, true);
+		move = BenchCoaches.frames(new WireProtocol.FrameWriter(WireProtocol.MOVE_PLAYERS).putVarint(1)
+				.putVarint(7).putShort(WireProtocol.toFieldUnits(250.5)).putShort(WireProtocol.toFieldUnits(120.0)));
+	}
+
+	@Override
+	public Object run() throws Exception {
+		move.rewind();
+		BenchCoaches.feed(sender, move);
+		return receivers.length == 0 ? 0 : receivers[receivers.length - 1].getMessages();
+	}
+}
@@ -0,0 +1,29 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Broadcasts one message to every coach of a room, half of them reading text and half binary.
+import lineup.bench.Workload;
+
+public class RoomBroadcastWorkload implements Workload {
+	private LineupRoom room;
+	private SinkConnection last;
+	private OutboundMessage message;
+
+	@Override
+	public void setUp(int size) throws Exception {
+		BenchCoaches.quietServer();
+		room = new LineupRoom("broadcast-" + size, new RosterStore(), 0);
+		for (int i = 0; i < size; i++) {
+			last = new SinkConnection();
+			if (i % 2 == 0) {
+				last.useBinaryOutput();
+			}
+			room.getCoaches().register("coach-" + i, new CoachSession(last));
+		}
+		message = ServerMessages.coachDisconnected("bench-coach");
+	}
+
+	@Override
+	public Object run() {
+		room.broadcast(message);
+		return last == null ? 0 : last.getMessages();
+	}
+}
@@ -0,0 +1,19 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Encodes the whole roster as one PLAYER_LIST message.
+import java.util.List;
+
+import lineup.bench.Workload;
+
+public class RosterSerializationWorkload implements Workload {
+	private List<Player> players;
+
+	@Override
+	public void setUp(int size) {
+		players = BenchCoaches.roster(size);
+	}
+
+	@Override
+	public Object run() {
+		return ServerMessages.playerList(players);
+	}
+}
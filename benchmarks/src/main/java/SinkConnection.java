@@ -0,0 +1,76 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//In-memory coach connection for the benchmarks: queues through a real outbox like the transports do, then drains it
+//at once and counts what would have been written to the socket.
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SinkConnection implements CoachConnection {
+	private final CoachOutbox outbox = new CoachOutbox();
+	private final List<ByteBuffer> written = new ArrayList<>();
+	private long messages;
+	private long bytes;
+	private long refused;
+
+	@Override
+	public void send(OutboundMessage message) {
+		outbox.add(message);
+		drain();
+	}
+
+	//A broadcast the outbox policy refuses is counted, a transport would drop the coach instead.
+	@Override
+	public void deliver(OutboundMessage message) {
+		if (!outbox.offer(message)) {
+			refused++;
+		}
+		drain();
+	}
+
+	@Override
+	public void useBinaryOutput() {
+		outbox.useBinary();
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void abort() {
+	}
+
+	@Override
+	public CoachOutbox getOutbox() {
+		return outbox;
+	}
+
+	@Override
+	public void joinedRoom(LineupRoom room) {
+	}
+
+	//Getter for how many messages were drained.
+	public long getMessages() {
+		return messages;
+	}
+
+	//Getter for how many payload bytes were drained.
+	public long getBytes() {
+		return bytes;
+	}
+
+	//Getter for how many broadcasts the outbox refused.
+	public long getRefused() {
+		return refused;
+	}
+
+	//Takes everything queued the way a transport's writer would before writing it.
+	private void drain() {
+		outbox.drainTo(written, Integer.MAX_VALUE);
+		for (ByteBuffer payload : written) {
+			messages++;
+			bytes += payload.remaining();
+		}
+		written.clear();
+	}
+}
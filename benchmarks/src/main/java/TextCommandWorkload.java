@@ -0,0 +1,53 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Replays a batch of text commands into one logged-in session, in a room of its own with a second coach to send lineups to.
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import lineup.bench.Workload;
+
+public class TextCommandWorkload implements Workload {
+	private final SinkConnection sink = new SinkConnection();
+	private CoachSession session;
+	private ByteBuffer commands;
+
+	@Override
+	public void setUp(int size) throws Exception {
+		BenchCoaches.quietServer();
+		//Offers expire at once, so each post sweeps the previous one and the target's mailbox never fills up
+		LineupMailboxes.configure(0, null);
+		String room = BenchCoaches.roomWithRoster("text-commands", 100);
+		session = BenchCoaches.login(sink, room, "text-parser", false, false);
+		BenchCoaches.login(new SinkConnection(), room, "text-target", false, false);
+		List<String> lines = new ArrayList<>();
+		lines.add("SHARE_BOARD");
+		lines.add("OFF");
+		lines.add("ADD_PLAYER");
+		lines.add("1");
+		lines.add("MOVE_PLAYERS");
+		for (int number = 1; number <= CoachLineup.MAX_PLAYERS; number++) {
+			lines.add(number + " " + (number * 31.5) + " " + (number * 17.25));
+		}
+		lines.add("END_MOVES");
+		lines.add("REMOVE_PLAYER");
+		lines.add("1");
+		lines.add("SEND_LINEUP_TO");
+		lines.add("text-target");
+		for (int number = 1; number <= CoachLineup.MAX_PLAYERS; number++) {
+			lines.add(String.valueOf(number));
+			lines.add(String.valueOf(number * 31.5));
+			lines.add(String.valueOf(number * 17.25));
+		}
+		lines.add("END_LINEUP");
+		lines.add("GET_LINEUP");
+		lines.add("PONG");
+		commands = BenchCoaches.text(lines.toArray(new String[0]));
+	}
+
+	@Override
+	public Object run() throws Exception {
+		commands.rewind();
+		BenchCoaches.feed(session, commands);
+		return sink.getMessages();
+	}
+}
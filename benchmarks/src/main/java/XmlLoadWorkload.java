@@ -0,0 +1,22 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Reads a generated roster file of the benchmark's size.
+import java.io.File;
+
+import lineup.bench.Workload;
+
+public class XmlLoadWorkload implements Workload {
+	private String filename;
+
+	@Override
+	public void setUp(int size) throws Exception {
+		File file = File.createTempFile("roster-" + size + "-", ".xml");
+		file.deleteOnExit();
+		filename = file.getPath();
+		BenchCoaches.writeXml(filename, BenchCoaches.roster(size));
+	}
+
+	@Override
+	public Object run() throws Exception {
+		return PlayerXMLReader.readAll(filename).size();
+	}
+}
@@ -0,0 +1,39 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Relays one dragged player from a coach sharing the board to every other sharing coach, each behind an in-memory connection.
+package lineup.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastFanOutBenchmark {
+	@Param({"1", "10", "100", "1000"})
+	private int coaches;
+	private Workload workload;
+
+	@Setup
+	public void setUp() throws Exception {
+		workload = Workload.load("FanOutWorkload", coaches);
+	}
+
+	@Benchmark
+	public Object relayMove() throws Exception {
+		return workload.run();
+	}
+}
@@ -0,0 +1,44 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Decodes and handles one batch of coach commands (SHARE_BOARD, ADD_PLAYER, MOVE_PLAYERS with 11 moves, REMOVE_PLAYER,
+//SEND_LINEUP_TO with 11 players, GET_LINEUP, PONG) in each protocol.
+package lineup.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandParsingBenchmark {
+	private Workload text;
+	private Workload binary;
+
+	@Setup
+	public void setUp() throws Exception {
+		text = Workload.load("TextCommandWorkload", 0);
+		binary = Workload.load("BinaryCommandWorkload", 0);
+	}
+
+	@Benchmark
+	public Object textCommands() throws Exception {
+		return text.run();
+	}
+
+	@Benchmark
+	public Object binaryCommands() throws Exception {
+		return binary.run();
+	}
+}
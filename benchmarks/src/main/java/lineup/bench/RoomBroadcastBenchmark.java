@@ -0,0 +1,39 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Runs LineupRoom.broadcast over every coach of a room, each behind an in-memory connection with a real outbox.
+package lineup.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomBroadcastBenchmark {
+	@Param({"1", "10", "100", "1000"})
+	private int coaches;
+	private Workload workload;
+
+	@Setup
+	public void setUp() throws Exception {
+		workload = Workload.load("RoomBroadcastWorkload", coaches);
+	}
+
+	@Benchmark
+	public Object broadcast() throws Exception {
+		return workload.run();
+	}
+}
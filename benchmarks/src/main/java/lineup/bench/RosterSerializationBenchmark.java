@@ -0,0 +1,39 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Encodes the PLAYER_LIST message (both protocols at once), done whenever the roster changes and a coach asks for it.
+package lineup.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RosterSerializationBenchmark {
+	@Param({"100", "10000", "1000000"})
+	private int players;
+	private Workload workload;
+
+	@Setup
+	public void setUp() throws Exception {
+		workload = Workload.load("RosterSerializationWorkload", players);
+	}
+
+	@Benchmark
+	public Object playerList() throws Exception {
+		return workload.run();
+	}
+}
@@ -0,0 +1,19 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One measured operation on the server code. JMH refuses benchmarks in the default package and named packages cannot
+//import it, so each benchmark loads its workload (a default-package class next to the server code) by name.
+package lineup.bench;
+
+public interface Workload {
+	//Builds everything the operation needs, size is the benchmark's parameter (players or coaches).
+	void setUp(int size) throws Exception;
+
+	//Runs the operation once and returns something derived from its result, so JMH cannot eliminate it.
+	Object run() throws Exception;
+
+	//Creates and sets up the workload with the given class name.
+	static Workload load(String className, int size) throws Exception {
+		Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+		workload.setUp(size);
+		return workload;
+	}
+}
@@ -0,0 +1,39 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Reads a whole roster file, as the server does at startup and on every reload of SoccerPlayers.xml.
+package lineup.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class XmlLoadBenchmark {
+	@Param({"100", "10000", "1000000"})
+	private int players;
+	private Workload workload;
+
+	@Setup
+	public void setUp() throws Exception {
+		workload = Workload.load("XmlLoadWorkload", players);
+	}
+
+	@Benchmark
+	public Object readAll() throws Exception {
+		return workload.run();
+	}
+}
@@ -0,0 +1,26 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Outbound side of a coach connection, implemented by each server transport (blocking threads or NIO event loop).
+
+public interface CoachConnection {
+	//Queues a reply to the coach's own command, written without interleaving other messages.
+	void send(OutboundMessage message);
+
+	//Queues a message from another session without blocking it, subject to the outbox overflow policy.
+	void deliver(OutboundMessage message);
+
+	//Sends every message queued from now on as binary frames instead of text lines.
+	void useBinaryOutput();
+
+	//Closes the connection once everything already queued has been written.
+	void close();
+
+	//Drops the connection at once without flushing, used when the coach stopped answering.
+	void abort();
+
+	//Getter for the queue of messages waiting to be written, handed over when a dropped session is parked or resumed.
+	CoachOutbox getOutbox();
+
+	//Called once the coach has joined its room, lets the transport serve the coach alongside the rest of the room.
+	//The session must not be handed more input until the room's roster is loaded (see LineupRoom.whenRosterLoaded).
+	void joinedRoom(LineupRoom room);
+}
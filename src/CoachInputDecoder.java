@@ -0,0 +1,102 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Splits the bytes a coach sends into text lines, or into binary frames once the coach has switched protocols.
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CoachInputDecoder {
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+	private final CoachSession session;
+	private byte[] assembly = new byte[256];
+	private int assembled;
+	private boolean binary;
+	private int frameLength = -1;
+	private int lengthValue;
+	private int lengthShift;
+
+	public CoachInputDecoder(CoachSession session) {
+		this.session = session;
+	}
+
+	//Switches to frames, takes effect from the next byte decoded.
+	public void switchToBinary() {
+		binary = true;
+	}
+
+	//Whether the coach has switched to frames.
+	public boolean isBinary() {
+		return binary;
+	}
+
+	//Consumes bytes until one line or frame is complete and hands it to the session.
+	//Returns false when the buffer ran out first, the partial message is kept for the next call.
+	public boolean decodeNext(ByteBuffer in) throws IOException {
+		return binary ? decodeFrame(in) : decodeLine(in);
+	}
+
+	//Reads up to the next '\n', dropping the '\r' of CRLF line endings.
+	private boolean decodeLine(ByteBuffer in) throws IOException {
+		while (in.hasRemaining()) {
+			byte b = in.get();
+			if (b == '\n') {
+				int length = assembled;
+				if (length > 0 && assembly[length - 1] == '\r') {
+					length--;
+				}
+				assembled = 0;
+				session.onLine(new String(assembly, 0, length, StandardCharsets.UTF_8));
+				return true;
+			}
+			if (assembled == MAX_LINE_LENGTH) {
+				throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+			}
+			ensureCapacity(assembled + 1);
+			assembly[assembled++] = b;
+		}
+		return false;
+	}
+
+	//Reads the varint length prefix, then the opcode and payload it covers.
+	private boolean decodeFrame(ByteBuffer in) throws IOException {
+		while (frameLength < 0) {
+			if (!in.hasRemaining()) {
+				return false;
+			}
+			byte b = in.get();
+			lengthValue |= (b & 0x7F) << lengthShift;
+			lengthShift += 7;
+			if ((b & 0x80) == 0) {
+				if (lengthValue < 1 || lengthValue > WireProtocol.MAX_FRAME_LENGTH) {
+					throw new IOException("Invalid frame length " + lengthValue);
+				}
+				frameLength = lengthValue;
+				lengthValue = 0;
+				lengthShift = 0;
+				ensureCapacity(frameLength);
+			} else if (lengthShift > 28) {
+				throw new IOException("Malformed frame length");
+			}
+		}
+
+		int count = Math.min(in.remaining(), frameLength - assembled);
+		in.get(assembly, assembled, count);
+		assembled += count;
+		if (assembled < frameLength) {
+			return false;
+		}
+
+		ByteBuffer frame = ByteBuffer.wrap(assembly, 0, frameLength);
+		frameLength = -1;
+		assembled = 0;
+		session.onFrame(frame.get(), frame);
+		return true;
+	}
+
+	//Grows the assembly buffer, frames and lines are decoded in place.
+	private void ensureCapacity(int needed) {
+		if (needed > assembly.length) {
+			assembly = Arrays.copyOf(assembly, Math.max(assembly.length * 2, needed));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Authoritative lineup of one coach on the server: the numbers of the players it has on the field.
+//Only the coach's own session changes it, one command at a time, so it needs no lock.
+import java.util.Arrays;
+import java.util.List;
+
+public class CoachLineup {
+	public static final int MAX_PLAYERS = 11;
+	private final int[] numbers = new int[MAX_PLAYERS];
+	private int size;
+
+	//Outcome of changing the lineup.
+	public enum Result {
+		ADDED,
+		REMOVED,
+		ALREADY_ON_FIELD,
+		FULL,
+		NOT_ON_FIELD
+	}
+
+	//Puts a player on the field unless it is already there or the lineup is full.
+	public Result add(int number) {
+		if (indexOf(number) >= 0) {
+			return Result.ALREADY_ON_FIELD;
+		}
+		if (size == MAX_PLAYERS) {
+			return Result.FULL;
+		}
+		numbers[size++] = number;
+		return Result.ADDED;
+	}
+
+	//Takes a player off the field, the last slot fills the gap.
+	public Result remove(int number) {
+		int index = indexOf(number);
+		if (index < 0) {
+			return Result.NOT_ON_FIELD;
+		}
+		numbers[index] = numbers[--size];
+		return Result.REMOVED;
+	}
+
+	//Replaces the lineup with an accepted one, skipping repeated players and any beyond the cap.
+	public void replaceWith(List<LineupEntry> lineup) {
+		size = 0;
+		for (LineupEntry entry : lineup) {
+			add(entry.getPlayerNumber());
+		}
+	}
+
+	public boolean contains(int number) {
+		return indexOf(number) >= 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	//Returns a copy of the numbers on the field.
+	public int[] toArray() {
+		return Arrays.copyOf(numbers, size);
+	}
+
+	//At most MAX_PLAYERS slots, so this scan is constant time. Shirt numbers are unbounded ints, so they cannot index a bitset directly.
+	private int indexOf(int number) {
+		for (int i = 0; i < size; i++) {
+			if (numbers[i] == number) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
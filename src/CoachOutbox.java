@@ -0,0 +1,251 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Bounded queue of messages waiting to be written to one coach, drained by that coach's writer.
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CoachOutbox {
+	//What happens to a broadcast when the coach's queue is full.
+	public enum OverflowPolicy {
+		//Discard the new message.
+		DROP,
+		//Replace a queued message with the same key, otherwise discard the new message.
+		COALESCE,
+		//Disconnect the coach, it is too slow to keep up.
+		DISCONNECT
+	}
+
+	private static volatile int defaultCapacity = 256;
+	private static volatile OverflowPolicy defaultPolicy = OverflowPolicy.COALESCE;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+	private final HashMap<String, Entry> queuedByKey = new HashMap<>();
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private int queuedBroadcasts;
+	private boolean binary;
+	private boolean closed;
+	//Set once the queue was handed to another outbox, later messages go straight there
+	private CoachOutbox forward;
+	private ReplayBuffer replay;
+
+	//Queue slot, its message can be swapped while it waits. The encoding is fixed when the message is queued.
+	private static final class Entry {
+		private OutboundMessage message;
+		private final boolean broadcast;
+		private final boolean binary;
+
+		private Entry(OutboundMessage message, boolean broadcast, boolean binary) {
+			this.message = message;
+			this.broadcast = broadcast;
+			this.binary = binary;
+		}
+	}
+
+	public CoachOutbox() {
+		this(defaultCapacity, defaultPolicy);
+	}
+
+	public CoachOutbox(int capacity, OverflowPolicy policy) {
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+
+	//Sets the capacity and policy used by outboxes created afterwards.
+	public static void configure(int capacity, OverflowPolicy policy) {
+		defaultCapacity = capacity;
+		defaultPolicy = policy;
+	}
+
+	//Queues a reply to the coach's own command, replies are never dropped.
+	public void add(OutboundMessage message) {
+		lock.lock();
+		try {
+			if (forward != null) {
+				forward.add(message);
+			} else if (!closed) {
+				queue.add(new Entry(message, false, binary));
+				changed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Queues a message fanned out by another coach without ever blocking the sender.
+	//Returns false when capacity broadcasts are already waiting and the policy says the coach must be disconnected.
+	public boolean offer(OutboundMessage message) {
+		lock.lock();
+		try {
+			if (forward != null) {
+				return forward.offer(message);
+			}
+			if (closed) {
+				return true;
+			}
+			String key = message.getCoalesceKey();
+			if (policy == OverflowPolicy.COALESCE && key != null) {
+				Entry queued = queuedByKey.get(key);
+				if (queued != null) {
+					queued.message = message;
+					return true;
+				}
+			}
+			if (queuedBroadcasts >= capacity) {
+				return policy != OverflowPolicy.DISCONNECT;
+			}
+			Entry entry = new Entry(message, true, binary);
+			queue.add(entry);
+			queuedBroadcasts++;
+			if (policy == OverflowPolicy.COALESCE && key != null) {
+				queuedByKey.put(key, entry);
+			}
+			changed.signalAll();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Encodes messages queued from now on as binary frames, messages already queued keep their encoding.
+	public void useBinary() {
+		lock.lock();
+		try {
+			binary = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Moves up to max queued payloads into the sink without blocking, returns how many were moved.
+	public int drainTo(Collection<ByteBuffer> sink, int max) {
+		lock.lock();
+		try {
+			int count = 0;
+			while (count < max && !queue.isEmpty()) {
+				Entry entry = queue.poll();
+				if (entry.broadcast) {
+					queuedBroadcasts--;
+				}
+				String key = entry.message.getCoalesceKey();
+				if (key != null && queuedByKey.get(key) == entry) {
+					queuedByKey.remove(key);
+				}
+				ByteBuffer payload = entry.message.payload(entry.binary);
+				if (replay != null) {
+					replay.record(payload);
+				}
+				sink.add(payload);
+				count++;
+			}
+			if (count > 0) {
+				changed.signalAll();
+			}
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Records every payload drained from now on, so it can be resent if the coach reconnects.
+	public void recordTo(ReplayBuffer replay) {
+		lock.lock();
+		try {
+			this.replay = replay;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Moves every queued message, with its encoding, to another outbox and forwards messages arriving later there too.
+	//Used when a coach's connection changes, so nothing queued for the old one is lost.
+	public void transferTo(CoachOutbox target) {
+		lock.lock();
+		try {
+			target.lock.lock();
+			try {
+				for (Entry entry : queue) {
+					target.queue.add(entry);
+					if (entry.broadcast) {
+						target.queuedBroadcasts++;
+					}
+					String key = entry.message.getCoalesceKey();
+					if (key != null && queuedByKey.get(key) == entry) {
+						target.queuedByKey.put(key, entry);
+					}
+				}
+				target.changed.signalAll();
+			} finally {
+				target.lock.unlock();
+			}
+			queue.clear();
+			queuedByKey.clear();
+			queuedBroadcasts = 0;
+			forward = target;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Blocks until there is something to write, returns false once closed and empty.
+	public boolean awaitMessages() throws InterruptedException {
+		lock.lock();
+		try {
+			while (queue.isEmpty() && !closed) {
+				changed.await();
+			}
+			return !queue.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Blocks the coach's own reader while its queue is full, so a client that stops reading only stalls itself.
+	public void awaitBelowCapacity() throws InterruptedException {
+		lock.lock();
+		try {
+			while (queue.size() >= capacity && !closed) {
+				changed.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//How many messages are waiting to be written.
+	public int size() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Whether the coach has a full queue of messages it has not read yet.
+	public boolean isFull() {
+		lock.lock();
+		try {
+			return queue.size() >= capacity;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Stops accepting messages, what is already queued can still be drained.
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
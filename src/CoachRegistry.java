@@ -0,0 +1,48 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Active coaches by name. Finding a coach is a hash lookup and broadcasts iterate without locking or copying,
+//so coaches joining and leaving never hold up messages to everyone else.
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CoachRegistry {
+	private final ConcurrentHashMap<String, CoachSession> coaches = new ConcurrentHashMap<>();
+
+	//Registers a coach under its name, or under "name (2)", "name (3)"... when the name is taken. Returns the name it got.
+	public String register(String name, CoachSession coach) {
+		String unique = name;
+		for (int suffix = 2; coaches.putIfAbsent(unique, coach) != null; suffix++) {
+			unique = name + " (" + suffix + ")";
+		}
+		return unique;
+	}
+
+	//Returns the coach registered under a name, or null.
+	public CoachSession find(String name) {
+		return coaches.get(name);
+	}
+
+	//Moves a name to the session that resumed it.
+	public boolean replace(String name, CoachSession parked, CoachSession resumed) {
+		return coaches.replace(name, parked, resumed);
+	}
+
+	//Unregisters a coach, false if that name no longer belongs to it.
+	public boolean unregister(String name, CoachSession coach) {
+		return name != null && coaches.remove(name, coach);
+	}
+
+	//How many coaches are registered, parked sessions included.
+	public int size() {
+		return coaches.size();
+	}
+
+	//Live view of the registered names.
+	public Collection<String> names() {
+		return coaches.keySet();
+	}
+
+	//Live view for iterating: never throws while coaches come and go, and sees each coach at most once.
+	public Collection<CoachSession> all() {
+		return coaches.values();
+	}
+}
@@ -0,0 +1,745 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Soccer Lineup Builder coach session - Runs the text or binary protocol for one coach, independently of how bytes are read.
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class CoachSession {
+	private static final String ROSTER_FILE = "SoccerPlayers.xml";
+	private static final LineupRooms rooms = new LineupRooms();
+	private static final LineupMailboxes mailboxes = new LineupMailboxes();
+	private static final int MAX_LINEUP_LINES = CoachLineup.MAX_PLAYERS * 3;
+	//One thread times every coach's heartbeat and every parked session, in 100 ms ticks
+	private static final TimerWheel timers = new TimerWheel("session-timers", 100, TimeUnit.MILLISECONDS, 512);
+	private static final ResumableSessions resumableSessions = new ResumableSessions(timers);
+
+	static {
+		timers.start();
+	}
+	private static volatile long heartbeatNanos = TimeUnit.SECONDS.toNanos(15);
+	private static volatile long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(45);
+	//Swapped when the coach drops (see park) and when another session resumes this one's state
+	private volatile CoachConnection connection;
+	private final CoachInputDecoder decoder = new CoachInputDecoder(this);
+	private CoachLineup lineup = new CoachLineup();
+	private ReplayBuffer replay = new ReplayBuffer();
+	private String sessionToken;
+	private boolean binaryOutput;
+	//Speaks the text protocol's later additions, see WireProtocol.TEXT_V2_REQUEST. Never set for the original client
+	private volatile boolean textV2;
+	private boolean awaitingHandshake = true;
+	private boolean awaitingName = false;
+	private String pendingCommand;
+	private String lineupTarget;
+	private List<String> lineupBody;
+	//Set when a lineup body runs past MAX_LINEUP_LINES, the rest is read and discarded up to END_LINEUP
+	private boolean lineupOverflow;
+	private boolean readingMoves;
+	//Text command whose lines are being handled and the time spent on them so far, recorded once its last line is handled
+	private String timedCommand;
+	private long timedNanos;
+	//Opted in to the shared board: receives other sharing coaches' drags and may stream its own
+	private volatile boolean sharingBoard;
+	//Lines, frames and end are handled under the session's monitor, so a coach resuming it from another connection
+	//(see dropForResume) never takes it over in the middle of a command
+	private volatile boolean isRunning = true;
+	private volatile boolean ended;
+	private String coachName;
+	//Chosen during the handshake, every coach, roster and broadcast the session deals with belongs to it
+	private LineupRoom room;
+	//Any line or frame from the coach counts as a heartbeat, a PONG is just the cheapest one
+	private volatile long lastHeardNanos = System.nanoTime();
+	private volatile TimerWheel.Timeout heartbeat;
+
+	public CoachSession(CoachConnection connection) {
+		this.connection = connection;
+		connection.getOutbox().recordTo(replay);
+		ServerMetrics.connectionOpened();
+		heartbeat = timers.schedule(this::checkHeartbeat, heartbeatNanos, TimeUnit.NANOSECONDS);
+	}
+
+	//Loads the players shared by every room without its own roster, called once by LineupServer before accepting coaches.
+	public static void loadInitialPlayers() {
+		rooms.loadSharedRoster(ROSTER_FILE);
+	}
+
+	//Sets how long a quiet coach waits before it is pinged, and how long a silent coach waits before its connection is dropped.
+	public static void configureHeartbeat(long heartbeatSeconds, long idleTimeoutSeconds) {
+		heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+		idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+	}
+
+	//Sets how long a dropped coach's session is kept and how many bytes sent to it are kept for resending.
+	public static void configureResumption(long graceSeconds, int replayBytes) {
+		ResumableSessions.configure(graceSeconds);
+		ReplayBuffer.configure(replayBytes);
+	}
+
+	//Restores lineup offers spilled before a restart, called once by LineupServer before accepting coaches.
+	public static void restoreLineupOffers() {
+		mailboxes.open();
+	}
+
+	//Publishes the gauges computed from the sessions, called once by LineupServer.
+	public static void registerMetrics() {
+		ServerMetrics.registerGauge("lineup_rooms", () -> rooms.all().size());
+		ServerMetrics.registerGauge("lineup_coaches_active", () -> {
+			long active = 0;
+			for (LineupRoom room : rooms.all()) {
+				active += room.getCoaches().size();
+			}
+			return active;
+		});
+		ServerMetrics.registerGauge("lineup_sessions_parked", resumableSessions::size);
+		ServerMetrics.registerGauge("lineup_outbox_queued_messages", () -> {
+			long queued = 0;
+			for (LineupRoom room : rooms.all()) {
+				for (CoachSession coach : room.getCoaches().all()) {
+					queued += coach.connection.getOutbox().size();
+				}
+			}
+			return queued;
+		});
+	}
+
+	//Reloads the rosters whenever their files are saved, pushing only the changed players to every room using them.
+	public static void watchRosterFile() {
+		rooms.watchRosters();
+	}
+
+	//Whether the coach is still in session (false after QUIT).
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	//Getter for coach name.
+	public String getCoachName() {
+		return coachName;
+	}
+
+	//Decodes the next line or frame from bytes read off the socket, see CoachInputDecoder.decodeNext.
+	public boolean decodeNext(ByteBuffer in) throws IOException {
+		return decoder.decodeNext(in);
+	}
+
+	//Feeds one line received from the coach into the protocol, timing the command it belongs to.
+	public synchronized void onLine(String line) {
+		long start = System.nanoTime();
+		lastHeardNanos = start;
+		handleLine(line);
+		timedNanos += System.nanoTime() - start;
+		if (!readingMoves && lineupBody == null && pendingCommand == null) {
+			if (timedCommand != null) {
+				recordCommand(timedCommand, timedNanos);
+			}
+			timedCommand = null;
+			timedNanos = 0;
+		}
+	}
+
+	private void handleLine(String line) {
+		if (awaitingHandshake && line.equals(WireProtocol.TEXT_V2_REQUEST)) {
+			textV2 = true;
+		} else if (awaitingHandshake && line.startsWith(WireProtocol.JOIN_ROOM + " ")) {
+			//Optional, before the login
+			String name = line.substring(WireProtocol.JOIN_ROOM.length() + 1);
+			if (WireProtocol.isRoomName(name)) {
+				if (room != null) {
+					//Asked again, only the last room counts
+					rooms.leave(room);
+				}
+				room = rooms.join(name);
+				if (room == null) {
+					connection.send(ServerMessages.error(binaryOutput, "Too many rooms"));
+					isRunning = false;
+				}
+			} else {
+				connection.send(ServerMessages.error(binaryOutput, "Invalid room name"));
+				isRunning = false;
+			}
+		} else if (awaitingHandshake) {
+			awaitingHandshake = false;
+			if (line.startsWith(WireProtocol.RESUME_REQUEST + " ")) {
+				resume(line);
+			} else {
+				awaitingName = line.equals("Coach name:");
+				if (room == null) {
+					room = rooms.join(LineupRooms.DEFAULT_ROOM);
+				}
+				connection.joinedRoom(room);
+			}
+		} else if (awaitingName) {
+			awaitingName = false;
+			//Registered once named, a name already in use in the room gets a suffix so offers always reach the right coach
+			coachName = room.getCoaches().register(line, this);
+			ServerLog.info("coach_connected", "coach", coachName, "room", room.getName());
+			if (textV2) {
+				//The original client cannot resume, its session ends with its connection
+				sessionToken = resumableSessions.newToken();
+				resumableSessions.add(sessionToken, this);
+				connection.send(ServerMessages.session(binaryOutput, sessionToken, coachName));
+			}
+			//Offers that arrived while the coach was away
+			for (LineupOffer offer : mailboxes.pending(room.mailboxOf(coachName))) {
+				connection.send(lineupOfferFor(offer));
+			}
+		} else if (readingMoves) {
+			readMoveLine(line);
+		} else if (lineupBody != null) {
+			readLineupLine(line);
+		} else if (pendingCommand != null) {
+			String command = pendingCommand;
+			pendingCommand = null;
+			handleArgument(command, line);
+		} else {
+			handleCommand(line);
+		}
+	}
+
+	//Handle coach commands.
+	private void handleCommand(String command) {
+		timedCommand = WireProtocol.isCommand(command) ? command : null;
+
+		switch (command) {
+		case "GET_PLAYERS":
+			sendPlayerList();
+			break;
+		case "ADD_PLAYER":
+		case "REMOVE_PLAYER":
+		case "SEND_LINEUP_TO":
+		case "SHARE_BOARD":
+			//These commands carry their argument on the next line
+			pendingCommand = command;
+			break;
+		case "ACCEPT_LINEUP":
+		case "DECLINE_LINEUP":
+			if (textV2) {
+				//Followed by the offer id
+				pendingCommand = command;
+			} else if (command.equals("ACCEPT_LINEUP")) {
+				//The original client answers the latest offer it was shown
+				handleLineupAccept(latestOfferId());
+			} else {
+				handleLineupDecline(latestOfferId());
+			}
+			break;
+		case "GET_ACTIVE_COACHES":
+			sendActiveCoaches();
+			break;
+		case "GET_LINEUP":
+			connection.send(ServerMessages.lineup(binaryOutput, lineup.toArray()));
+			break;
+		case "MOVE_PLAYERS":
+			//Followed by "number x y" lines until END_MOVES
+			readingMoves = true;
+			break;
+		case "PONG":
+			break;
+		case "QUIT":
+			isRunning = false;
+			break;
+		case WireProtocol.BINARY_REQUEST:
+			//Everything queued from now on is framed, the coach confirms with BINARY_START before framing its own commands
+			textV2 = true;
+			connection.send(ServerMessages.binaryAccepted());
+			connection.useBinaryOutput();
+			binaryOutput = true;
+			break;
+		case WireProtocol.BINARY_START:
+			decoder.switchToBinary();
+			break;
+		}
+	}
+
+	//Handles the argument line of a command.
+	private void handleArgument(String command, String argument) {
+		switch (command) {
+		case "ADD_PLAYER":
+			handleAddPlayer(parsePlayerNumber(argument));
+			break;
+		case "REMOVE_PLAYER":
+			handleRemovePlayer(parsePlayerNumber(argument));
+			break;
+		case "SEND_LINEUP_TO":
+			lineupTarget = argument;
+			lineupBody = new ArrayList<>();
+			lineupOverflow = false;
+			break;
+		case "ACCEPT_LINEUP":
+			handleLineupAccept(parseOfferId(argument));
+			break;
+		case "DECLINE_LINEUP":
+			handleLineupDecline(parseOfferId(argument));
+			break;
+		case "SHARE_BOARD":
+			sharingBoard = argument.equals("ON");
+			break;
+		}
+	}
+
+	//Adds a handled command to the metrics, and to the log when debug events are kept.
+	private void recordCommand(String command, long nanos) {
+		ServerMetrics.recordCommand(command, nanos);
+		if (ServerLog.isEnabled(ServerLog.Level.DEBUG)) {
+			ServerLog.debug("command", "coach", coachName, "command", command, "latency_us", nanos / 1000);
+		}
+	}
+
+	//Feeds one binary frame received from the coach into the protocol, timing the command.
+	public synchronized void onFrame(byte opcode, ByteBuffer payload) {
+		long start = System.nanoTime();
+		lastHeardNanos = start;
+		try {
+			switch (opcode) {
+			case WireProtocol.GET_PLAYERS:
+				sendPlayerList();
+				break;
+			case WireProtocol.ADD_PLAYER:
+				handleAddPlayer(WireProtocol.getVarint(payload));
+				break;
+			case WireProtocol.REMOVE_PLAYER:
+				handleRemovePlayer(WireProtocol.getVarint(payload));
+				break;
+			case WireProtocol.GET_ACTIVE_COACHES:
+				sendActiveCoaches();
+				break;
+			case WireProtocol.GET_LINEUP:
+				connection.send(ServerMessages.lineup(binaryOutput, lineup.toArray()));
+				break;
+			case WireProtocol.SEND_LINEUP_TO:
+				String targetCoach = WireProtocol.getString(payload);
+				int count = WireProtocol.getVarint(payload);
+				if (count < 0 || count > CoachLineup.MAX_PLAYERS) {
+					connection.send(ServerMessages.error(binaryOutput, "Lineup has more than " + CoachLineup.MAX_PLAYERS + " players"));
+					break;
+				}
+				List<LineupEntry> lineup = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					int number = WireProtocol.getVarint(payload);
+					double x = WireProtocol.fromFieldUnits(payload.getShort());
+					double y = WireProtocol.fromFieldUnits(payload.getShort());
+					lineup.add(new LineupEntry(number, x, y));
+				}
+				handleLineupSend(targetCoach, lineup);
+				break;
+			case WireProtocol.SHARE_BOARD:
+				sharingBoard = payload.get() != 0;
+				break;
+			case WireProtocol.MOVE_PLAYERS:
+				int moveCount = WireProtocol.getVarint(payload);
+				for (int i = 0; i < moveCount; i++) {
+					int number = WireProtocol.getVarint(payload);
+					double x = WireProtocol.fromFieldUnits(payload.getShort());
+					double y = WireProtocol.fromFieldUnits(payload.getShort());
+					relayMove(new LineupEntry(number, x, y));
+				}
+				break;
+			case WireProtocol.ACCEPT_LINEUP:
+				handleLineupAccept(WireProtocol.getVarlong(payload));
+				break;
+			case WireProtocol.DECLINE_LINEUP:
+				handleLineupDecline(WireProtocol.getVarlong(payload));
+				break;
+			case WireProtocol.PONG:
+				break;
+			case WireProtocol.QUIT:
+				isRunning = false;
+				break;
+			}
+		} catch (RuntimeException e) {
+			//Truncated or malformed payload
+			connection.send(ServerMessages.error(binaryOutput, "Malformed frame"));
+		}
+		String command = WireProtocol.commandName(opcode);
+		if (command != null) {
+			recordCommand(command, System.nanoTime() - start);
+		}
+	}
+
+	//Sends player list, preceded by the roster version it reflects so the coach can tell which deltas it already has.
+	private void sendPlayerList() {
+		if (textV2) {
+			connection.send(room.getRosterDeltas().getVersionMessage());
+		}
+		connection.send(room.getRoster().snapshot().getPlayerListMessage());
+	}
+
+	//Parses a player number sent as text, -1 (no such player) if it is not a number.
+	private static int parsePlayerNumber(String argument) {
+		try {
+			return Integer.parseInt(argument.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	//Id of the newest offer waiting for the coach, -1 (no such offer) when none is.
+	private long latestOfferId() {
+		List<LineupOffer> pending = mailboxes.pending(room.mailboxOf(coachName));
+		return pending.isEmpty() ? -1 : pending.get(pending.size() - 1).getId();
+	}
+
+	//Parses an offer id sent as text, -1 (no such offer) if it is not a number.
+	private static long parseOfferId(String argument) {
+		try {
+			return Long.parseLong(argument.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	//Adds a player from the list to the lineup, the server's lineup decides whether it fits.
+	//The player's strings are only read for a reply that carries them.
+	private void handleAddPlayer(int playerNumber) {
+		RosterStore.Snapshot roster = room.getRoster().snapshot();
+		int player = roster.indexOf(playerNumber);
+		if (player < 0) {
+			connection.send(ServerMessages.error(binaryOutput, "Player not found"));
+			return;
+		}
+		switch (lineup.add(playerNumber)) {
+		case ADDED:
+			if (textV2 && !binaryOutput) {
+				//The player's lines after SUCCESS are only for the original client, a later one might mistake them for messages
+				connection.send(ServerMessages.success());
+			} else {
+				connection.send(ServerMessages.playerAdded(binaryOutput, playerNumber, roster.nameAt(player), roster.positionAt(player)));
+			}
+			break;
+		case ALREADY_ON_FIELD:
+			connection.send(ServerMessages.error(binaryOutput, "Player already in lineup"));
+			break;
+		default:
+			connection.send(ServerMessages.error(binaryOutput, "Lineup full"));
+			break;
+		}
+	}
+
+	//Removes a player from the lineup.
+	private void handleRemovePlayer(int playerNumber) {
+		if (lineup.remove(playerNumber) == CoachLineup.Result.REMOVED) {
+			connection.send(ServerMessages.success());
+		} else {
+			connection.send(ServerMessages.error(binaryOutput, "Player not in lineup"));
+		}
+	}
+
+	//Queues a message from another session of the room, see CoachConnection.deliver.
+	public void deliver(OutboundMessage message) {
+		connection.deliver(message);
+	}
+
+	//Queues a batch of roster changes, the original client is only told to ask for the player list again.
+	public void deliverRosterDelta(OutboundMessage delta) {
+		connection.deliver(textV2 ? delta : ServerMessages.playersUpdated());
+	}
+
+	//The offer in the form the coach reads, the original client answers without an id.
+	private OutboundMessage lineupOfferFor(LineupOffer offer) {
+		return textV2 ? ServerMessages.lineupOffer(offer) : ServerMessages.originalLineupOffer(offer);
+	}
+
+	//Answers SEND_LINEUP_TO, the original client expects no answer.
+	private void sendLineupResult(OutboundMessage result) {
+		if (textV2) {
+			connection.send(result);
+		}
+	}
+
+	//Sends the list of active coaches using the app.
+	private void sendActiveCoaches() {
+		List<String> coachNames = new ArrayList<>();
+		for (String name : room.getCoaches().names()) {
+			if (!name.equals(coachName)) {
+				coachNames.add(name);
+			}
+		}
+		connection.send(ServerMessages.activeCoaches(binaryOutput, coachNames));
+	}
+
+	//Collects the lineup body until END_LINEUP, then offers it to the target coach.
+	//The body is always read to its end, even when it is too long or its target is gone, so the next command starts clean.
+	private void readLineupLine(String line) {
+		if (!line.equals("END_LINEUP")) {
+			if (lineupBody.size() < MAX_LINEUP_LINES) {
+				lineupBody.add(line);
+			} else {
+				lineupOverflow = true;
+			}
+			return;
+		}
+		List<String> body = lineupBody;
+		lineupBody = null;
+		if (lineupOverflow) {
+			sendLineupResult(ServerMessages.error(binaryOutput, "Lineup has more than " + CoachLineup.MAX_PLAYERS + " players"));
+			return;
+		}
+		if (body.size() % 3 != 0) {
+			//An entry is cut short, sending the rest would not be the lineup the coach meant
+			sendLineupResult(ServerMessages.error(binaryOutput, "Malformed lineup"));
+			return;
+		}
+		List<LineupEntry> lineup = new ArrayList<>(body.size() / 3);
+		try {
+			for (int i = 0; i < body.size(); i += 3) {
+				int number = Integer.parseInt(body.get(i));
+				double x = Double.parseDouble(body.get(i + 1));
+				double y = Double.parseDouble(body.get(i + 2));
+				lineup.add(new LineupEntry(number, x, y));
+			}
+		} catch (NumberFormatException e) {
+			sendLineupResult(ServerMessages.error(binaryOutput, "Malformed lineup"));
+			return;
+		}
+		handleLineupSend(lineupTarget, lineup);
+	}
+
+	//Relays one "number x y" move line until END_MOVES, a line that does not parse is skipped.
+	private void readMoveLine(String line) {
+		if (line.equals("END_MOVES")) {
+			readingMoves = false;
+			return;
+		}
+		String[] fields = line.split(" ");
+		try {
+			relayMove(new LineupEntry(Integer.parseInt(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			connection.send(ServerMessages.error(binaryOutput, "Malformed move"));
+		}
+	}
+
+	//Forwards a dragged player's position to every other coach sharing the board.
+	//Nothing is locked here: the registry iterates without locks and each outbox coalesces moves of the same player.
+	private void relayMove(LineupEntry move) {
+		if (!sharingBoard) {
+			return;
+		}
+		long start = System.nanoTime();
+		int recipients = 0;
+		OutboundMessage message = ServerMessages.playerMoved(coachName, move);
+		for (CoachSession coach : room.getCoaches().all()) {
+			if (coach != this && coach.sharingBoard) {
+				coach.connection.deliver(message);
+				recipients++;
+			}
+		}
+		ServerMetrics.recordFanOut("board", recipients, System.nanoTime() - start);
+	}
+
+	//Handles lineup offerings from coaches: validates the whole lineup, then posts it to the target's mailbox.
+	//Mailboxes are lock-free, so no lock is shared between sender and receiver.
+	private void handleLineupSend(String targetCoach, List<LineupEntry> lineup) {
+		String problem = validateLineup(lineup, room.getRoster().snapshot());
+		if (problem != null) {
+			sendLineupResult(ServerMessages.error(binaryOutput, problem));
+			return;
+		}
+		CoachSession coach = room.getCoaches().find(targetCoach);
+		if (coach == null) {
+			sendLineupResult(ServerMessages.error(binaryOutput, "Coach not found"));
+			return;
+		}
+		LineupOffer offer = mailboxes.post(coachName, room.mailboxOf(targetCoach), lineup);
+		if (offer == null) {
+			sendLineupResult(ServerMessages.error(binaryOutput, "Coach has too many pending lineups"));
+		} else {
+			coach.connection.deliver(coach.lineupOfferFor(offer));
+			sendLineupResult(ServerMessages.success());
+		}
+	}
+
+	//Returns why a lineup cannot be sent, or null when every player exists, appears once and has a real position.
+	private static String validateLineup(List<LineupEntry> lineup, RosterStore.Snapshot players) {
+		if (lineup.isEmpty()) {
+			return "Empty lineup";
+		}
+		if (lineup.size() > CoachLineup.MAX_PLAYERS) {
+			return "Lineup has more than " + CoachLineup.MAX_PLAYERS + " players";
+		}
+		CoachLineup seen = new CoachLineup();
+		for (LineupEntry entry : lineup) {
+			if (seen.add(entry.getPlayerNumber()) != CoachLineup.Result.ADDED) {
+				return "Player listed twice: " + entry.getPlayerNumber();
+			}
+			if (players.indexOf(entry.getPlayerNumber()) < 0) {
+				return "Player not found: " + entry.getPlayerNumber();
+			}
+			if (!Double.isFinite(entry.getX()) || !Double.isFinite(entry.getY())) {
+				return "Malformed lineup";
+			}
+		}
+		return null;
+	}
+
+	//Handles lineup acceptance by sending the lineup of the accepted offer.
+	private void handleLineupAccept(long offerId) {
+		LineupOffer offer = mailboxes.take(room.mailboxOf(coachName), offerId);
+		if (offer == null) {
+			connection.send(ServerMessages.error(binaryOutput, "No such lineup offer"));
+		} else if (offer.isExpired(System.currentTimeMillis())) {
+			connection.send(ServerMessages.error(binaryOutput, "Lineup offer expired"));
+		} else {
+			lineup.replaceWith(offer.getLineup());
+			connection.send(ServerMessages.lineupReceived(binaryOutput, offer.getLineup()));
+		}
+	}
+
+	//Handles lineup denial by discarding the offer and sending a String that declines it.
+	private void handleLineupDecline(long offerId) {
+		if (mailboxes.take(room.mailboxOf(coachName), offerId) == null) {
+			connection.send(ServerMessages.error(binaryOutput, "No such lineup offer"));
+		} else {
+			connection.send(ServerMessages.lineupDeclined());
+		}
+	}
+
+	//Unregisters the coach and tells everyone else it left.
+	//A coach that drops without QUIT keeps its session for a grace period, see park.
+	public synchronized void end() {
+		if (ended) {
+			return;
+		}
+		ended = true;
+		heartbeat.cancel();
+		boolean dropped = isRunning;
+		isRunning = false;
+		if (dropped && sessionToken != null) {
+			park();
+		} else {
+			finish();
+		}
+	}
+
+	//Unregisters the coach, lets go of its mailbox, tells everyone else it left and leaves the room.
+	private void finish() {
+		if (sessionToken != null) {
+			resumableSessions.remove(sessionToken, this);
+		}
+		if (room == null) {
+			return;
+		}
+		if (room.getCoaches().unregister(coachName, this)) {
+			mailboxes.release(room.mailboxOf(coachName));
+			room.broadcast(ServerMessages.coachDisconnected(this.coachName));
+		}
+		rooms.leave(room);
+	}
+
+	//Runs on the timer thread: pings a coach that has been quiet for a heartbeat interval and drops the connection of one
+	//that stayed silent past the idle timeout. The session then ends like any dropped connection and frees its resources.
+	private void checkHeartbeat() {
+		if (ended) {
+			return;
+		}
+		if (coachName != null && !textV2) {
+			//The original client never answers pings, its connection is left to TCP as it always was
+			heartbeat = timers.schedule(this::checkHeartbeat, heartbeatNanos, TimeUnit.NANOSECONDS);
+			return;
+		}
+		long idle = System.nanoTime() - lastHeardNanos;
+		if (idle >= idleTimeoutNanos) {
+			ServerLog.info("coach_timed_out", "coach", coachName != null ? coachName : "(not logged in)");
+			connection.abort();
+			return;
+		}
+		long nextCheck = heartbeatNanos - idle;
+		if (idle >= heartbeatNanos) {
+			connection.deliver(ServerMessages.ping());
+			nextCheck = Math.min(heartbeatNanos, idleTimeoutNanos - idle);
+		}
+		heartbeat = timers.schedule(this::checkHeartbeat, nextCheck, TimeUnit.NANOSECONDS);
+	}
+
+	//Keeps the session after its connection dropped. Messages still queued or sent from now on wait in a parked outbox
+	//and the coach stays registered, so other coaches see nothing unless it does not come back in time.
+	private void park() {
+		CoachOutbox parked = new CoachOutbox();
+		if (binaryOutput) {
+			parked.useBinary();
+		}
+		//Moved before the parked connection is published: a broadcast reaching the old outbox meanwhile is forwarded
+		//after what was already queued, never ahead of it
+		connection.getOutbox().transferTo(parked);
+		connection = new ParkedConnection(parked);
+		ServerLog.info("coach_dropped", "coach", coachName, "session", "kept");
+		resumableSessions.park(sessionToken, this, this::finish);
+	}
+
+	//Parks the session because its coach resumed it on another connection while this one still looked open, as when
+	//Wi-Fi drops without a reset reaching the server. The session is parked exactly as if the drop had been noticed,
+	//then the old connection is closed. Does nothing when the session already ended.
+	private void dropForResume() {
+		CoachConnection dropped;
+		synchronized (this) {
+			if (ended) {
+				return;
+			}
+			dropped = connection;
+			end();
+		}
+		dropped.abort();
+	}
+
+	//Resumes a parked session on this connection: takes over its state, answers RESUMED and resends what the coach missed,
+	//then everything that was waiting for it. A session still holding the token on another connection is parked first.
+	//A coach that cannot resume is told so and may log in afresh.
+	private void resume(String request) {
+		//Only a client that speaks the later additions has a session to resume, it logs in with them if resuming fails
+		textV2 = true;
+		String[] fields = request.split(" ");
+		if (fields.length == 3) {
+			CoachSession live = resumableSessions.live(fields[1]);
+			if (live != null) {
+				ServerLog.info("coach_reconnected", "coach", live.coachName, "old_connection", "dropped");
+				live.dropForResume();
+			}
+		}
+		CoachSession parked = fields.length == 3 ? resumableSessions.claim(fields[1]) : null;
+		List<ByteBuffer> missed = null;
+		if (parked != null) {
+			try {
+				missed = parked.replay.rewindTo(Long.parseLong(fields[2]));
+			} catch (NumberFormatException e) {
+				//Treated like an offset that is no longer kept
+			}
+			if (missed == null) {
+				parked.finish();
+			}
+		}
+		if (missed == null) {
+			connection.send(ServerMessages.resumeFailed());
+			awaitingHandshake = true;
+			return;
+		}
+
+		if (room != null) {
+			//The parked session's place in its room carries over, a room joined before RESUME is left
+			rooms.leave(room);
+		}
+		coachName = parked.coachName;
+		room = parked.room;
+		sessionToken = parked.sessionToken;
+		lineup = parked.lineup;
+		sharingBoard = parked.sharingBoard;
+		binaryOutput = parked.binaryOutput;
+		replay = parked.replay;
+		connection.getOutbox().recordTo(replay);
+		connection.send(ServerMessages.resumed(parked.decoder.isBinary()));
+		if (binaryOutput) {
+			connection.useBinaryOutput();
+		}
+		for (ByteBuffer payload : missed) {
+			connection.send(OutboundMessage.raw(payload));
+		}
+		parked.connection.getOutbox().transferTo(connection.getOutbox());
+		if (parked.decoder.isBinary()) {
+			decoder.switchToBinary();
+		}
+		room.getCoaches().replace(coachName, parked, this);
+		resumableSessions.add(sessionToken, this);
+		connection.joinedRoom(room);
+		ServerLog.info("coach_resumed", "coach", coachName, "room", room.getName(), "resent", missed.size());
+	}
+}
@@ -0,0 +1,220 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Compiled roster file, memory-mapped at startup so the server can accept coaches without parsing the XML first.
+//Layout: header (magic, format version, player count, XML size, XML modified time), fixed-width records of
+//(number, name offset, position offset) sorted by number, the record index of each player in file order, then a string
+//table of u16-length-prefixed UTF-8 strings.
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+public final class CompiledRoster implements RosterStore.Snapshot {
+	private static final int MAGIC = 0x4C525354;
+	//Version 1 had no file order table
+	private static final int FORMAT_VERSION = 2;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8;
+	private static final int RECORD_SIZE = 12;
+	private final ByteBuffer mapping;
+	private final int count;
+	private final int fileOrderStart;
+	//Decodes players from the mapping on access in file order, the same order as a roster parsed from the XML.
+	//Nothing is copied up front
+	private final List<Player> players = new AbstractList<Player>() {
+		@Override
+		public Player get(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return playerAt(mapping.getInt(fileOrderStart + index * 4));
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
+	};
+	//GET_PLAYERS reply, encoded on first request instead of at startup
+	private volatile OutboundMessage playerListMessage;
+
+	private CompiledRoster(ByteBuffer mapping, int count) {
+		this.mapping = mapping;
+		this.count = count;
+		fileOrderStart = HEADER_SIZE + count * RECORD_SIZE;
+	}
+
+	//Returns where the compiled form of an XML roster is kept: SoccerPlayers.xml compiles to SoccerPlayers.roster.
+	public static Path pathFor(Path xmlFile) {
+		String name = xmlFile.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return xmlFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".roster");
+	}
+
+	//Maps a compiled roster, or returns null when there is none or it was compiled from an older version of the XML.
+	//Without the XML (e.g. on a failover machine) the compiled file is used as it is.
+	public static CompiledRoster open(Path compiledFile, Path xmlFile) {
+		if (!Files.exists(compiledFile)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(compiledFile, StandardOpenOption.READ)) {
+			ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (mapping.limit() < HEADER_SIZE || mapping.getInt(0) != MAGIC) {
+				ServerLog.warn("compiled_roster_ignored", "file", compiledFile, "reason", "unrecognised");
+				return null;
+			}
+			if (mapping.getInt(4) != FORMAT_VERSION) {
+				//Compiled by an older server, recompiled from the XML like a stale file
+				return null;
+			}
+			int count = mapping.getInt(8);
+			if (count < 0 || HEADER_SIZE + (long) count * (RECORD_SIZE + 4) > mapping.limit()) {
+				ServerLog.warn("compiled_roster_ignored", "file", compiledFile, "reason", "truncated");
+				return null;
+			}
+			if (Files.exists(xmlFile) && (Files.size(xmlFile) != mapping.getLong(12)
+					|| Files.getLastModifiedTime(xmlFile).toMillis() != mapping.getLong(20))) {
+				return null;
+			}
+			//The mapping stays valid after the channel is closed
+			return new CompiledRoster(mapping, count);
+		} catch (IOException e) {
+			ServerLog.warn("compiled_roster_ignored", "file", compiledFile, "error", e.getMessage());
+			return null;
+		}
+	}
+
+	//Compiles the players, given in file order, to a file stamped with the XML's size and modified time, replacing the old
+	//file atomically.
+	public static void write(Path compiledFile, Path xmlFile, Collection<Player> roster) throws IOException {
+		List<Player> inFileOrder = new ArrayList<>(roster);
+		int count = inFileOrder.size();
+		Integer[] byNumber = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			byNumber[i] = i;
+		}
+		Arrays.sort(byNumber, Comparator.comparingInt(i -> inFileOrder.get(i).getNumber()));
+		int[] recordOf = new int[count];
+		for (int record = 0; record < count; record++) {
+			recordOf[byNumber[record]] = record;
+		}
+
+		//Positions repeat a lot, each distinct string is stored once
+		ByteArrayOutputStream strings = new ByteArrayOutputStream();
+		HashMap<String, Integer> stringOffsets = new HashMap<>();
+		int stringTableStart = HEADER_SIZE + count * (RECORD_SIZE + 4);
+		ByteBuffer records = ByteBuffer.allocate(stringTableStart);
+		records.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(count)
+				.putLong(Files.size(xmlFile)).putLong(Files.getLastModifiedTime(xmlFile).toMillis());
+		for (int record = 0; record < count; record++) {
+			Player player = inFileOrder.get(byNumber[record]);
+			records.putInt(player.getNumber())
+					.putInt(stringTableStart + putString(strings, stringOffsets, player.getName()))
+					.putInt(stringTableStart + putString(strings, stringOffsets, player.getPosition()));
+		}
+		for (int record : recordOf) {
+			records.putInt(record);
+		}
+		records.flip();
+
+		Path temporary = compiledFile.resolveSibling(compiledFile.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer stringTable = ByteBuffer.wrap(strings.toByteArray());
+			while (records.hasRemaining() || stringTable.hasRemaining()) {
+				channel.write(new ByteBuffer[] {records, stringTable});
+			}
+		}
+		Files.move(temporary, compiledFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	//Appends a string to the table unless it is already there, returns its offset in the table.
+	private static int putString(ByteArrayOutputStream strings, HashMap<String, Integer> offsets, String value) throws IOException {
+		Integer offset = offsets.get(value);
+		if (offset == null) {
+			byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+			if (utf8.length > 0xFFFF) {
+				throw new IOException("String too long for the compiled roster: " + value.substring(0, 32) + "...");
+			}
+			offset = strings.size();
+			strings.write(utf8.length >> 8);
+			strings.write(utf8.length);
+			strings.write(utf8);
+			offsets.put(value, offset);
+		}
+		return offset;
+	}
+
+	@Override
+	public Player find(int number) {
+		int record = indexOf(number);
+		return record < 0 ? null : playerAt(record);
+	}
+
+	//Binary search over the records in the mapping, returns the record index.
+	@Override
+	public int indexOf(int number) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleNumber = mapping.getInt(HEADER_SIZE + middle * RECORD_SIZE);
+			if (middleNumber < number) {
+				low = middle + 1;
+			} else if (middleNumber > number) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String nameAt(int record) {
+		return stringAt(mapping.getInt(HEADER_SIZE + record * RECORD_SIZE + 4));
+	}
+
+	@Override
+	public String positionAt(int record) {
+		return stringAt(mapping.getInt(HEADER_SIZE + record * RECORD_SIZE + 8));
+	}
+
+	//Getter for players, in file order.
+	@Override
+	public List<Player> getPlayers() {
+		return players;
+	}
+
+	@Override
+	public OutboundMessage getPlayerListMessage() {
+		OutboundMessage message = playerListMessage;
+		if (message == null) {
+			message = ServerMessages.playerList(players);
+			playerListMessage = message;
+		}
+		return message;
+	}
+
+	//Decodes the record at an index in number order, absolute reads keep the shared mapping safe to use from every thread.
+	private Player playerAt(int record) {
+		return new Player(mapping.getInt(HEADER_SIZE + record * RECORD_SIZE), nameAt(record), positionAt(record));
+	}
+
+	private String stringAt(int offset) {
+		int length = ((mapping.get(offset) & 0xFF) << 8) | (mapping.get(offset + 1) & 0xFF);
+		byte[] utf8 = new byte[length];
+		mapping.get(offset + 2, utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+}
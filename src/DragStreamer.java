@@ -0,0 +1,63 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Streams drag moves to the server at a fixed rate, sending only the latest position of each player dragged since the last tick.
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class DragStreamer {
+	private static final int UPDATES_PER_SECOND = 30;
+	private final ServerChannel serverChannel;
+	//Latest position per player number, a newer drag event simply overwrites the older one
+	private final ConcurrentHashMap<Integer, LineupEntry> pendingMoves = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "drag-streamer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ScheduledFuture<?> ticks;
+
+	public DragStreamer(ServerChannel serverChannel) {
+		this.serverChannel = serverChannel;
+	}
+
+	//Starts sending moves, called when the coach opts in to the shared board.
+	public void start() {
+		if (ticks == null) {
+			long period = 1000 / UPDATES_PER_SECOND;
+			ticks = ticker.scheduleAtFixedRate(this::flush, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	//Stops sending moves, whatever is still pending is dropped.
+	public void stop() {
+		if (ticks != null) {
+			ticks.cancel(false);
+			ticks = null;
+		}
+		pendingMoves.clear();
+	}
+
+	//Records where a player was dragged to, called on every drag event.
+	public void record(Player player) {
+		pendingMoves.put(player.getNumber(), new LineupEntry(player.getNumber(), player.getX(), player.getY()));
+	}
+
+	//Sends one batch with the players moved since the previous tick.
+	private void flush() {
+		if (pendingMoves.isEmpty()) {
+			return;
+		}
+		List<LineupEntry> moves = new ArrayList<>(pendingMoves.size());
+		for (Integer number : pendingMoves.keySet()) {
+			LineupEntry move = pendingMoves.remove(number);
+			if (move != null) {
+				moves.add(move);
+			}
+		}
+		serverChannel.movePlayers(moves);
+	}
+}
@@ -0,0 +1,119 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Uniform grid over the player tokens on the field canvas, finds the token under the mouse without scanning every token.
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class FieldGrid {
+	private final double cellSize;
+	//Only cells that hold a token exist, keyed by column and row
+	private final HashMap<Long, List<Token>> cells = new HashMap<>();
+	private final HashMap<Player, Token> tokens = new HashMap<>();
+	private long nextZ;
+
+	//A player on the grid with the cells its bounding box covers and its stacking order.
+	private static final class Token {
+		private final Player player;
+		private long z;
+		private int minColumn, minRow, maxColumn, maxRow;
+
+		private Token(Player player) {
+			this.player = player;
+		}
+	}
+
+	//Cells are as large as a token, so each token covers at most four cells.
+	public FieldGrid(double tokenSize) {
+		this.cellSize = tokenSize;
+	}
+
+	//Adds a player on top of every other token, or brings it to the top if it is already on the grid.
+	public void add(Player player) {
+		Token token = tokens.get(player);
+		if (token == null) {
+			token = new Token(player);
+			tokens.put(player, token);
+			insert(token);
+		}
+		token.z = nextZ++;
+	}
+
+	public void remove(Player player) {
+		Token token = tokens.remove(player);
+		if (token != null) {
+			unlink(token);
+		}
+	}
+
+	public void clear() {
+		cells.clear();
+		tokens.clear();
+	}
+
+	//Re-files a player after its coordinates changed, only touching cells when it crossed a cell border.
+	public void update(Player player) {
+		Token token = tokens.get(player);
+		if (token == null) {
+			return;
+		}
+		if (column(player.getX()) != token.minColumn || row(player.getY()) != token.minRow
+				|| column(player.getX() + cellSize) != token.maxColumn || row(player.getY() + cellSize) != token.maxRow) {
+			unlink(token);
+			insert(token);
+		}
+	}
+
+	//Returns the topmost player whose circle contains the point, or null.
+	public Player topmostAt(double x, double y) {
+		List<Token> cell = cells.get(key(column(x), row(y)));
+		if (cell == null) {
+			return null;
+		}
+		Token topmost = null;
+		for (Token token : cell) {
+			if ((topmost == null || token.z > topmost.z) && token.player.containsPoint(x, y)) {
+				topmost = token;
+			}
+		}
+		return topmost == null ? null : topmost.player;
+	}
+
+	//Files the token under every cell its bounding box covers.
+	private void insert(Token token) {
+		Player player = token.player;
+		token.minColumn = column(player.getX());
+		token.minRow = row(player.getY());
+		token.maxColumn = column(player.getX() + cellSize);
+		token.maxRow = row(player.getY() + cellSize);
+		for (int column = token.minColumn; column <= token.maxColumn; column++) {
+			for (int row = token.minRow; row <= token.maxRow; row++) {
+				cells.computeIfAbsent(key(column, row), k -> new ArrayList<>(4)).add(token);
+			}
+		}
+	}
+
+	//Removes the token from the cells it was filed under, dropping cells that become empty.
+	private void unlink(Token token) {
+		for (int column = token.minColumn; column <= token.maxColumn; column++) {
+			for (int row = token.minRow; row <= token.maxRow; row++) {
+				long key = key(column, row);
+				List<Token> cell = cells.get(key);
+				if (cell != null && cell.remove(token) && cell.isEmpty()) {
+					cells.remove(key);
+				}
+			}
+		}
+	}
+
+	private int column(double x) {
+		return (int) Math.floor(x / cellSize);
+	}
+
+	private int row(double y) {
+		return (int) Math.floor(y / cellSize);
+	}
+
+	private static long key(int column, int row) {
+		return ((long) column << 32) | (row & 0xFFFFFFFFL);
+	}
+}
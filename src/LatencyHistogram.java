@@ -0,0 +1,78 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Counts latencies in log-linear buckets (32 per power of two, so within about 3% of the recorded value) without locking.
+//Recording is one atomic increment, so every thread can record into the same histogram.
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF = SUB_BUCKETS / 2;
+	//Enough buckets for any positive long
+	private final AtomicLongArray buckets = new AtomicLongArray(bucketIndex(Long.MAX_VALUE) + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	//Records one value, negative values count as 0.
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucketIndex(value));
+		count.increment();
+		total.add(value);
+		max.accumulate(value);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotal() {
+		return total.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) total.sum() / n;
+	}
+
+	//Returns the highest value of the bucket holding the given percentile (0 to 100), 0 when nothing was recorded.
+	public long valueAtPercentile(double percentile) {
+		long n = count.sum();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(highestInBucket(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	//Values below SUB_BUCKETS get a bucket each, above that each power of two is split into HALF buckets.
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * HALF + (int) (value >>> shift);
+	}
+
+	private static long highestInBucket(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / HALF - 1;
+		long subBucket = index - (long) shift * HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -9,16 +9,27 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ChoiceDialog;
 
-public class LineupController {
+public class LineupController implements ServerMessageHandler {
 	private LineupScene lineupScene;
 	private Socket socket;
-	private PrintWriter outgoing;
-	private BufferedReader incoming;
+	private ServerChannel serverChannel;
+	private DragStreamer dragStreamer;
+	private boolean sharingBoard;
 	private List<String> activeCoaches = new ArrayList<>();
 	private List<Player> selectedPlayers = new ArrayList<>();
-	private List<Player> players = new ArrayList<>();
+	//Index of selectedPlayers by position for hit-testing, only used on the JavaFX thread
+	private final FieldGrid fieldGrid = new FieldGrid(50);
+	//Roster shown in the table, updated in place on the JavaFX thread
+	private final List<Player> players = new ArrayList<>();
+	//Position of each player in players by number
+	private final PlayerNumberIndex playerIndex = new PlayerNumberIndex(64);
 	private static final int MAX_PLAYERS = 11;
-	private String coachName;
+	private static final int RECONNECT_ATTEMPTS = 10;
+	private volatile String coachName;
+	private long rosterVersion = -1;
+	private volatile boolean awaitingPlayerList;
+	//Set by disconnect(), so the listener does not try to reconnect
+	private volatile boolean disconnecting;
 
 	public LineupController(LineupScene lineupScene) {
 		this.lineupScene = lineupScene;
@@ -31,8 +42,8 @@ public class LineupController {
 	//Sets up communication with socket.
 	private void setupSocketCommunication() {
 		try {
-			outgoing = SceneManager.getOutgoing();
-			incoming = SceneManager.getIncoming();
+			serverChannel = SceneManager.getServerChannel();
+			dragStreamer = new DragStreamer(serverChannel);
 			startPlayerUpdateListener();
 		} catch (Exception e) {
 			lineupScene.showAlert("Connection Error", "Failed to setup socket communication");
@@ -44,92 +55,262 @@ public class LineupController {
 		requestInitialPlayerList();
 	}
 
-	//Requests initial player list.
+	//Requests initial player list, then which of those players the server has on this coach's field.
 	private void requestInitialPlayerList() {
 		try {
-			outgoing.println("GET_PLAYERS");
-			outgoing.flush();
+			awaitingPlayerList = true;
+			serverChannel.getPlayers();
+			serverChannel.getLineup();
 		} catch (Exception e) {
 			lineupScene.showAlert("Network Error", "Failed to request player list: " + e.getMessage());
 		}
 	}
 
-	//Listens for commands and executes their respective actions.
+	//Listens for server messages, the channel decodes them and calls back the handle methods.
+	//When the connection drops it reconnects and resumes the session, so only a server that stays away is reported.
 	private void startPlayerUpdateListener() {
 		new Thread(() -> {
-			try {
-				String line;
-				while ((line = incoming.readLine()) != null) {
-					if (line.equals("PLAYERS_UPDATED")) {
-						requestInitialPlayerList();
-					} else if (line.equals("BEGIN_PLAYER_LIST")) {
-						handlePlayerListReceived();
-					} else if (line.equals("ACTIVE_COACHES")) {
-						List<String> coaches = new ArrayList<>();
-						while (!(line = incoming.readLine()).equals("END_COACHES")) {
-							coaches.add(line);
-						}
-						handleActiveCoaches(coaches);
-					} else if (line.equals("LINEUP_OFFER")) {
-						String fromCoach = incoming.readLine();
-						handleLineupOffer(fromCoach);
-					} else if (line.equals("LINEUP_RECEIVED")) {
-						selectedPlayers.clear();
-						while (!(line = incoming.readLine()).equals("END_LINEUP")) {
-							int number = Integer.parseInt(line);
-							double x = Double.parseDouble(incoming.readLine());
-							double y = Double.parseDouble(incoming.readLine());
-
-							for (Player p : players) {
-								if (p.getNumber() == number) {
-									p.setX(x);
-									p.setY(y);
-									p.setPlayerColor(lineupScene.getTeamColor());
-									p.setOnField(true, coachName);
-									selectedPlayers.add(p);
-									break;
-								}
-							}
-						}
-						Platform.runLater(() -> {
-							lineupScene.redrawField();
-							lineupScene.refreshTable();
-						});
-					} else if (line.equals("COACH_DISCONNECTED")) {
-						String disconnectedCoach = incoming.readLine();
-						activeCoaches.remove(disconnectedCoach);
-						Platform.runLater(() -> {
-							lineupScene.showAlert("Coach Disconnected", disconnectedCoach + " has left the session.");
-						});
+			do {
+				try {
+					while (serverChannel.readMessage(this)) {
 					}
+				} catch (IOException e) {
+					System.out.println("Connection dropped: " + e.getMessage());
 				}
-			} catch (IOException e) {
+			} while (!disconnecting && reconnect());
+			if (!disconnecting) {
 				Platform.runLater(() -> lineupScene.showAlert("Connection Error", "Lost connection to server"));
 			}
 		}).start();
 	}
 
-	//Handles receiving a lineup.
-	private void handlePlayerListReceived() throws IOException {
-		List<Player> receivedPlayers = new ArrayList<>();
-		String line;
-		while (!(line = incoming.readLine()).equals("END_PLAYER_LIST")) {
-			int number = Integer.parseInt(line);
-			String name = incoming.readLine();
-			String position = incoming.readLine();
+	//Connects again to the same server, waiting a little longer after each failed attempt. The server resends whatever
+	//was missed; if it no longer has the session, logs in again and restores the lineup and the player list.
+	private boolean reconnect() {
+		for (int attempt = 1; attempt <= RECONNECT_ATTEMPTS && !disconnecting; attempt++) {
+			try {
+				Thread.sleep(Math.min(attempt, 5) * 1000L);
+				Socket newSocket = new Socket(socket.getInetAddress(), socket.getPort());
+				socket = newSocket;
+				SceneManager.replaceSocket(newSocket);
+				if (!serverChannel.resume(newSocket)) {
+					serverChannel.open(coachName);
+					//The lineup goes back first, so the lineup fetched with the list already has it
+					Platform.runLater(() -> {
+						for (Player p : selectedPlayers) {
+							serverChannel.addPlayer(p.getNumber());
+						}
+						requestInitialPlayerList();
+					});
+				}
+				return true;
+			} catch (IOException e) {
+				System.out.println("Reconnect attempt " + attempt + " failed: " + e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return false;
+	}
+
+	//Takes the name the server registered this coach under, which differs when the requested one was taken.
+	@Override
+	public void handleSession(String assignedName) {
+		if (assignedName.equals(coachName)) {
+			return;
+		}
+		coachName = assignedName;
+		SceneManager.setCoachName(assignedName);
+		Platform.runLater(() -> lineupScene.showAlert("Name Taken", "Another coach is using that name, you joined as " + assignedName + "."));
+	}
 
-			Player newPlayer = new Player(number, name, position);
+	//Setter for the version the next player list or delta applies to.
+	@Override
+	public void handleRosterVersion(long version) {
+		rosterVersion = version;
+	}
 
-			for (Player existingPlayer : players) {
-				if (existingPlayer.getNumber() == number) {
-					newPlayer.setOnField(existingPlayer.isOnField(coachName), coachName);
+	//Handles receiving the player list. Players already known are updated in place so their field state is kept.
+	@Override
+	public void handlePlayerList(List<Player> receivedPlayers) {
+		awaitingPlayerList = false;
+		Platform.runLater(() -> {
+			for (int i = 0; i < receivedPlayers.size(); i++) {
+				Player received = receivedPlayers.get(i);
+				int slot = playerIndex.get(received.getNumber());
+				if (slot >= 0) {
+					Player existing = players.get(slot);
+					existing.setName(received.getName());
+					existing.setPosition(received.getPosition());
+					receivedPlayers.set(i, existing);
+				}
+			}
+			players.clear();
+			players.addAll(receivedPlayers);
+			reindexPlayers();
+			lineupScene.updatePlayerTable(players);
+		});
+	}
+
+	//Applies a batch of changes to the shared roster, re-fetching the list only when a version was missed.
+	@Override
+	public void handleRosterDelta(List<RosterDelta> deltas) {
+		if (awaitingPlayerList) {
+			//The list being fetched already reflects these changes
+			return;
+		}
+		List<RosterDelta> newer = new ArrayList<>(deltas.size());
+		for (RosterDelta delta : deltas) {
+			long version = delta.getVersion();
+			if (version <= rosterVersion) {
+				continue;
+			}
+			if (version != rosterVersion + 1) {
+				requestInitialPlayerList();
+				return;
+			}
+			rosterVersion = version;
+			newer.add(delta);
+		}
+		if (!newer.isEmpty()) {
+			Platform.runLater(() -> applyRosterDeltas(newer));
+		}
+	}
+
+	//Updates only the table rows of players added, edited or taken out. Existing players are updated in place so their
+	//field state is kept, and applying the same change twice (e.g. after a player list that already had it) changes nothing.
+	private void applyRosterDeltas(List<RosterDelta> deltas) {
+		//1 for players to take out, 0 for players put back by a later delta of the batch
+		PlayerNumberIndex removedNumbers = new PlayerNumberIndex(deltas.size());
+		for (RosterDelta delta : deltas) {
+			int slot = playerIndex.get(delta.getPlayerNumber());
+			Player player = delta.getPlayer();
+			if (delta.getOp() == RosterDelta.Op.REMOVE) {
+				if (slot >= 0) {
+					removedNumbers.put(delta.getPlayerNumber(), 1);
+				}
+			} else if (slot >= 0) {
+				if (removedNumbers.get(player.getNumber()) > 0) {
+					removedNumbers.put(player.getNumber(), 0);
+				}
+				Player existing = players.get(slot);
+				existing.setName(player.getName());
+				existing.setPosition(player.getPosition());
+				lineupScene.refreshPlayerRow(existing);
+			} else {
+				playerIndex.put(player.getNumber(), players.size());
+				players.add(player);
+				lineupScene.addPlayerRow(player);
+			}
+		}
+		if (removedNumbers.size() > 0) {
+			List<Player> removed = new ArrayList<>();
+			players.removeIf(player -> {
+				if (removedNumbers.get(player.getNumber()) <= 0) {
+					return false;
+				}
+				if (selectedPlayers.remove(player)) {
+					fieldGrid.remove(player);
+					lineupScene.markPlayerDirty(player);
+				}
+				removed.add(player);
+				return true;
+			});
+			reindexPlayers();
+			lineupScene.removePlayerRows(removed);
+		}
+	}
+
+	//Refills the number index after players were replaced or taken out of the list.
+	private void reindexPlayers() {
+		playerIndex.clear();
+		for (int i = 0; i < players.size(); i++) {
+			playerIndex.put(players.get(i).getNumber(), i);
+		}
+	}
+
+	//Handles receiving a lineup, replacing the players on the field.
+	@Override
+	public void handleLineupReceived(List<LineupEntry> lineup) {
+		Platform.runLater(() -> {
+			for (Player p : selectedPlayers) {
+				p.setOnField(false);
+			}
+			selectedPlayers.clear();
+			for (LineupEntry entry : lineup) {
+				int slot = playerIndex.get(entry.getPlayerNumber());
+				if (slot >= 0) {
+					Player p = players.get(slot);
+					p.setX(entry.getX());
+					p.setY(entry.getY());
+					p.setOnField(true);
+					selectedPlayers.add(p);
+				}
+			}
+			rebuildFieldGrid();
+			lineupScene.redrawField();
+			lineupScene.refreshTable();
+		});
+	}
+
+	//Handles the server's lineup for this coach, which decides the on-field status. Players keep their positions.
+	@Override
+	public void handleLineup(int[] playerNumbers) {
+		Platform.runLater(() -> {
+			for (Player p : selectedPlayers) {
+				p.setOnField(false);
+			}
+			selectedPlayers.clear();
+			for (int number : playerNumbers) {
+				int slot = playerIndex.get(number);
+				if (slot >= 0) {
+					Player p = players.get(slot);
+					p.setOnField(true);
+					selectedPlayers.add(p);
+				}
+			}
+			rebuildFieldGrid();
+			lineupScene.redrawField();
+			lineupScene.refreshTable();
+		});
+	}
+
+	//Handles another coach leaving the session.
+	@Override
+	public void handleCoachDisconnected(String disconnectedCoach) {
+		activeCoaches.remove(disconnectedCoach);
+		Platform.runLater(() -> {
+			lineupScene.showAlert("Coach Disconnected", disconnectedCoach + " has left the session.");
+		});
+	}
+
+	//Moves a player dragged by another coach sharing the board, if it is on this coach's field.
+	@Override
+	public void handlePlayerMoved(String fromCoach, LineupEntry move) {
+		Platform.runLater(() -> {
+			for (Player p : selectedPlayers) {
+				if (p.getNumber() == move.getPlayerNumber()) {
+					lineupScene.markPlayerDirty(p);
+					p.setX(move.getX());
+					p.setY(move.getY());
+					fieldGrid.update(p);
+					lineupScene.markPlayerDirty(p);
 					break;
 				}
 			}
-			receivedPlayers.add(newPlayer);
+		});
+	}
+
+	//Opts in or out of the shared board, where drags stream live between the coaches sharing it.
+	public void setSharingBoard(boolean sharing) {
+		sharingBoard = sharing;
+		serverChannel.shareBoard(sharing);
+		if (sharing) {
+			dragStreamer.start();
+		} else {
+			dragStreamer.stop();
 		}
-		this.players = receivedPlayers;
-		Platform.runLater(() -> lineupScene.updatePlayerTable(receivedPlayers));
 	}
 
 	//Adds a player to the field by changing its parameters and signaling LineupScene.
@@ -148,33 +329,30 @@ public class LineupController {
 		player.setX(lineupScene.getFieldCanvas().getWidth() / 2 - 25);
 		player.setY(lineupScene.getFieldCanvas().getHeight() / 2 - 25);
 
-		//Set player color
-		player.setPlayerColor(lineupScene.getTeamColor());
-
 		selectedPlayers.add(player);
-		player.setOnField(true, coachName);
+		fieldGrid.add(player);
+		player.setOnField(true);
 
 		//Notify GUI to draw player
-		lineupScene.drawPlayerOnField(player);
+		lineupScene.markPlayerDirty(player);
 		lineupScene.refreshTable();
 
 		//Send add player request to server
-		outgoing.println("ADD_PLAYER");
-		outgoing.println(player.getNumber());
+		serverChannel.addPlayer(player.getNumber());
 	}
 
 	//Removes a player from the field.
 	public void removePlayerFromField(Player player) {
 		selectedPlayers.remove(player);
-		player.setOnField(false, coachName);
+		fieldGrid.remove(player);
+		player.setOnField(false);
 
 		//Redraw field without the removed player
-		lineupScene.redrawField();
+		lineupScene.markPlayerDirty(player);
 		lineupScene.refreshTable();
 
 		//Send remove player request to server
-		outgoing.println("REMOVE_PLAYER");
-		outgoing.println(player.getNumber());
+		serverChannel.removePlayer(player.getNumber());
 	}
 
 	//Saves a roster into a .txt file that starts with the respective coach's name.
@@ -200,13 +378,14 @@ public class LineupController {
 	//Gets the list of active coaches before sending a lineup.
 	public void sendLineup() {
 		if (selectedPlayers.size() == MAX_PLAYERS) {
-			outgoing.println("GET_ACTIVE_COACHES");
+			serverChannel.getActiveCoaches();
 		} else {
 			lineupScene.showAlert("Incomplete lineup", "You need 11 players to send a lineup.");
 		}
 	}
 
 	//Displays available (connected) coaches.
+	@Override
 	public void handleActiveCoaches(List<String> coaches) {
 		this.activeCoaches = new ArrayList<>(coaches);
 		Platform.runLater(() -> {
@@ -223,14 +402,7 @@ public class LineupController {
 			dialog.setContentText("Coach:");
 			dialog.showAndWait().ifPresent(coach -> {
 				if (activeCoaches.contains(coach)) {
-				outgoing.println("SEND_LINEUP_TO");
-				outgoing.println(coach);
-				for (Player player : selectedPlayers) {
-					outgoing.println(player.getNumber());
-					outgoing.println(player.getX());
-					outgoing.println(player.getY());
-				}
-				outgoing.println("END_LINEUP");
+				serverChannel.sendLineupTo(coach, selectedPlayers);
 				} else {
 					lineupScene.showAlert("Coach Unavailable", "The selected coach is no longer connected.");
 				}
@@ -238,8 +410,19 @@ public class LineupController {
 		});
 	}
 
+	//The field already shows the change, so only refusals matter: the server's lineup is fetched again to undo it.
+	@Override
+	public void handleCommandResult(String error) {
+		if (error == null) {
+			return;
+		}
+		serverChannel.getLineup();
+		Platform.runLater(() -> lineupScene.showAlert("Server Refused", error));
+	}
+
 	//Handler for receiving a lineup offer.
-	public void handleLineupOffer(String fromCoach) {
+	@Override
+	public void handleLineupOffer(String fromCoach, long offerId) {
 		Platform.runLater(() -> {
 			Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
 			alert.setTitle("Lineup Offer");
@@ -247,11 +430,10 @@ public class LineupController {
 			alert.setContentText("Accept this lineup?");
 			alert.showAndWait().ifPresent(response -> {
 				if (response == ButtonType.OK) {
-					selectedPlayers.clear();
-					lineupScene.redrawField();
-					outgoing.println("ACCEPT_LINEUP");
+					//The field changes once the server answers with the lineup, an expired offer leaves it as it is
+					serverChannel.acceptLineup(offerId);
 				} else {
-					outgoing.println("DECLINE_LINEUP");
+					serverChannel.declineLineup(offerId);
 				}
 			});
 		});
@@ -262,16 +444,37 @@ public class LineupController {
 		return selectedPlayers;
 	}
 
+	//Returns the topmost player on the field at a canvas point, or null.
+	public Player getPlayerAt(double x, double y) {
+		return fieldGrid.topmostAt(x, y);
+	}
+
+	//Refills the field index after the whole lineup was replaced, later players are drawn on top.
+	private void rebuildFieldGrid() {
+		fieldGrid.clear();
+		for (Player player : selectedPlayers) {
+			fieldGrid.add(player);
+		}
+	}
+
 	//Updates a player's position on the soccer field canvas.
 	public void updatePlayerPosition(Player player, double x, double y) {
+		lineupScene.markPlayerDirty(player);
 		player.setX(x);
 		player.setY(y);
-		lineupScene.redrawField();
+		fieldGrid.update(player);
+		lineupScene.markPlayerDirty(player);
+		if (sharingBoard) {
+			dragStreamer.record(player);
+		}
 	}
 
 	//Disconnects by closing the socket and cleaning the SceneManager.
 	public void disconnect() {
-		outgoing.println("QUIT");
+		disconnecting = true;
+		dragStreamer.stop();
+		lineupScene.stopRendering();
+		serverChannel.quit();
 		try {
 			socket.close();
 			SceneManager.cleanup();
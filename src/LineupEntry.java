@@ -0,0 +1,28 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One player of a lineup sent between coaches, with its position on the field canvas.
+
+public class LineupEntry {
+	private final int playerNumber;
+	private final double x;
+	private final double y;
+
+	public LineupEntry(int playerNumber, double x, double y) {
+		this.playerNumber = playerNumber;
+		this.x = x;
+		this.y = y;
+	}
+
+	//Getters.
+
+	public int getPlayerNumber() {
+		return playerNumber;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+}
@@ -0,0 +1,118 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Selector-based event loop - Serves many non-blocking coach connections from a single thread.
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class LineupEventLoop extends Thread {
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	//Every loop of the server, so coaches of one room can be served by the same loop
+	private final LineupEventLoop[] group;
+
+	public LineupEventLoop(int index, LineupEventLoop[] group) throws IOException {
+		super("lineup-event-loop-" + index);
+		this.selector = Selector.open();
+		this.group = group;
+	}
+
+	//Returns the loop serving a room's coaches.
+	LineupEventLoop forRoom(LineupRoom room) {
+		return group[Math.floorMod(room.getLoopIndex(), group.length)];
+	}
+
+	//Hands a freshly accepted channel to this loop, called from the acceptor thread.
+	public void register(SocketChannel channel) {
+		execute(() -> {
+			try {
+				channel.configureBlocking(false);
+				NioCoachConnection connection = new NioCoachConnection(channel, this);
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+				connection.registered(key);
+			} catch (IOException e) {
+				ServerLog.error("coach_register_failed", "error", e.getMessage());
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+				}
+			}
+		});
+	}
+
+	//Takes over a connection from another loop. Write interest makes it flush its outbox and then decode any buffered input.
+	void adopt(SocketChannel channel, NioCoachConnection connection) {
+		execute(() -> {
+			try {
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, connection);
+				connection.registered(key);
+			} catch (IOException e) {
+				ServerLog.warn("coach_move_failed", "loop", getName(), "error", e.getMessage());
+				connection.closeNow();
+			}
+		});
+	}
+
+	//Asks the loop to start writing a connection's queued messages.
+	void requestWrite(NioCoachConnection connection) {
+		if (Thread.currentThread() == this) {
+			connection.enableWrites();
+		} else {
+			execute(connection::enableWrites);
+		}
+	}
+
+	//Runs a task on the loop thread.
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			try {
+				selector.select();
+				runTasks();
+				processSelectedKeys();
+			} catch (IOException e) {
+				ServerLog.error("event_loop_error", "loop", Thread.currentThread().getName(), "error", e.getMessage());
+			}
+		}
+	}
+
+	//Runs tasks queued by other threads.
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	//Dispatches ready channels to their connections.
+	private void processSelectedKeys() {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			NioCoachConnection connection = (NioCoachConnection) key.attachment();
+			try {
+				if (key.isValid() && key.isReadable()) {
+					connection.onReadable();
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.onWritable();
+				}
+			} catch (ClosedChannelException e) {
+				connection.closeNow();
+			} catch (IOException e) {
+				ServerLog.warn("session_error", "error", e.getMessage());
+				connection.closeNow();
+			}
+		}
+	}
+}
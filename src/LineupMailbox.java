@@ -0,0 +1,67 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Lineup offers waiting for one coach, ordered by id (oldest first). Senders add offers without locking, so a burst of offers
+//to one coach never delays any other session, and the mailbox is bounded so it cannot be flooded.
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+public class LineupMailbox {
+	public static final int CAPACITY = 8;
+	private final ConcurrentSkipListMap<Long, LineupOffer> offers = new ConcurrentSkipListMap<>();
+	private final AtomicInteger size = new AtomicInteger();
+	//Told the id of every offer that expires here, so it is logged as done like an answered one
+	private final LongConsumer expired;
+
+	public LineupMailbox(LongConsumer expired) {
+		this.expired = expired;
+	}
+
+	//Adds an offer, false when the coach already has CAPACITY offers waiting that have not expired.
+	public boolean offer(LineupOffer offer, long nowMillis) {
+		removeExpired(nowMillis);
+		if (size.incrementAndGet() > CAPACITY) {
+			size.decrementAndGet();
+			return false;
+		}
+		offers.put(offer.getId(), offer);
+		return true;
+	}
+
+	//Removes and returns an offer by id, null when it is not waiting here.
+	public LineupOffer take(long id) {
+		LineupOffer offer = offers.remove(id);
+		if (offer != null) {
+			size.decrementAndGet();
+		}
+		return offer;
+	}
+
+	//Returns the offers still waiting, oldest first.
+	public List<LineupOffer> pending(long nowMillis) {
+		removeExpired(nowMillis);
+		return new ArrayList<>(offers.values());
+	}
+
+	public boolean isEmpty() {
+		return offers.isEmpty();
+	}
+
+	//When the newest offer waiting here expires, 0 when there is none.
+	public long latestExpiryMillis() {
+		Map.Entry<Long, LineupOffer> newest = offers.lastEntry();
+		return newest == null ? 0 : newest.getValue().getExpiresAtMillis();
+	}
+
+	//Drops expired offers, remove(key, value) makes sure each one is counted out once even when senders race.
+	public void removeExpired(long nowMillis) {
+		for (LineupOffer offer : offers.values()) {
+			if (offer.isExpired(nowMillis) && offers.remove(offer.getId(), offer)) {
+				size.decrementAndGet();
+				expired.accept(offer.getId());
+			}
+		}
+	}
+}
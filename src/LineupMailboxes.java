@@ -0,0 +1,118 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Every coach's lineup mailbox, kept by coach name so offers still waiting when a coach disconnects are there when it reconnects.
+//With a spill file, waiting offers also survive a server restart. A mailbox is dropped once its coach has left and it is empty.
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LineupMailboxes {
+	private static volatile long ttlMillis = TimeUnit.MINUTES.toMillis(10);
+	private static volatile Path spillPath;
+	//Checks again on mailboxes whose coach left while offers were still waiting
+	private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "mailbox-sweeper");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ConcurrentHashMap<String, LineupMailbox> byCoach = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private OfferSpillFile spill;
+
+	//Sets how long an offer can wait and the optional file offers are spilled to (null keeps them in memory only).
+	public static void configure(long ttlSeconds, Path spillPath) {
+		LineupMailboxes.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+		LineupMailboxes.spillPath = spillPath;
+	}
+
+	//Restores the offers still waiting in the spill file, called once before coaches connect.
+	public void open() {
+		if (spillPath == null) {
+			return;
+		}
+		try {
+			List<LineupOffer> waiting = OfferSpillFile.readWaiting(spillPath, System.currentTimeMillis());
+			for (LineupOffer offer : waiting) {
+				byCoach.computeIfAbsent(offer.getToCoach(), name -> new LineupMailbox(this::expired)).offer(offer, 0);
+				nextId.accumulateAndGet(offer.getId() + 1, Math::max);
+			}
+			spill = new OfferSpillFile(spillPath, waiting);
+			//Their coaches are not connected yet
+			for (String mailbox : byCoach.keySet()) {
+				release(mailbox);
+			}
+			ServerLog.info("lineup_offers_restored", "count", waiting.size(), "file", spillPath);
+		} catch (IOException e) {
+			ServerLog.warn("lineup_offers_not_spilled", "file", spillPath, "error", e.getMessage());
+		}
+	}
+
+	//Posts a lineup to a coach's mailbox, null when that mailbox is full.
+	public LineupOffer post(String fromCoach, String toCoach, List<LineupEntry> lineup) {
+		long now = System.currentTimeMillis();
+		LineupOffer offer = new LineupOffer(nextId.getAndIncrement(), fromCoach, toCoach, lineup, now + ttlMillis);
+		boolean[] accepted = new boolean[1];
+		//Posted inside compute, so release cannot drop the mailbox between finding it and adding the offer
+		byCoach.compute(toCoach, (name, mailbox) -> {
+			if (mailbox == null) {
+				mailbox = new LineupMailbox(this::expired);
+			}
+			accepted[0] = mailbox.offer(offer, now);
+			return mailbox;
+		});
+		if (!accepted[0]) {
+			return null;
+		}
+		if (spill != null) {
+			spill.appendOffer(offer);
+		}
+		return offer;
+	}
+
+	//Removes an offer from a coach's mailbox once it is answered, null when the coach has no such offer.
+	public LineupOffer take(String coachName, long id) {
+		LineupMailbox mailbox = byCoach.get(coachName);
+		LineupOffer offer = mailbox == null ? null : mailbox.take(id);
+		if (offer != null && spill != null) {
+			spill.appendDone(id);
+		}
+		return offer;
+	}
+
+	//Returns the offers waiting for a coach, oldest first.
+	public List<LineupOffer> pending(String coachName) {
+		LineupMailbox mailbox = byCoach.get(coachName);
+		return mailbox == null ? List.of() : mailbox.pending(System.currentTimeMillis());
+	}
+
+	//Called once a coach has left for good: drops its mailbox when nothing is waiting, otherwise looks again
+	//when the newest offer expires, so the coach can still come back for them until then.
+	public void release(String coachName) {
+		long[] retryAt = new long[1];
+		byCoach.computeIfPresent(coachName, (name, mailbox) -> {
+			mailbox.removeExpired(System.currentTimeMillis());
+			retryAt[0] = mailbox.latestExpiryMillis();
+			return mailbox.isEmpty() ? null : mailbox;
+		});
+		if (retryAt[0] != 0) {
+			long delay = Math.max(0, retryAt[0] - System.currentTimeMillis()) + 1;
+			sweeper.schedule(() -> release(coachName), delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	//Whether a mailbox is kept for this coach, empty or not.
+	public boolean hasMailbox(String coachName) {
+		return byCoach.containsKey(coachName);
+	}
+
+	//Expired offers are logged as done, so the spill file can forget them.
+	private void expired(long id) {
+		if (spill != null) {
+			spill.appendDone(id);
+		}
+	}
+}
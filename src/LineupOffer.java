@@ -0,0 +1,46 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//A validated lineup one coach sent to another, waiting in the receiver's mailbox until it is accepted, declined or expires.
+import java.util.List;
+
+public class LineupOffer {
+	private final long id;
+	private final String fromCoach;
+	private final String toCoach;
+	private final List<LineupEntry> lineup;
+	private final long expiresAtMillis;
+
+	public LineupOffer(long id, String fromCoach, String toCoach, List<LineupEntry> lineup, long expiresAtMillis) {
+		this.id = id;
+		this.fromCoach = fromCoach;
+		this.toCoach = toCoach;
+		this.lineup = List.copyOf(lineup);
+		this.expiresAtMillis = expiresAtMillis;
+	}
+
+	//Whether the offer can no longer be accepted at the given wall-clock time.
+	public boolean isExpired(long nowMillis) {
+		return nowMillis >= expiresAtMillis;
+	}
+
+	//Getters.
+
+	public long getId() {
+		return id;
+	}
+
+	public String getFromCoach() {
+		return fromCoach;
+	}
+
+	public String getToCoach() {
+		return toCoach;
+	}
+
+	public List<LineupEntry> getLineup() {
+		return lineup;
+	}
+
+	public long getExpiresAtMillis() {
+		return expiresAtMillis;
+	}
+}
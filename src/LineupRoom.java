@@ -0,0 +1,102 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One room, such as a club or a tournament: its own coaches, roster and broadcasts. Coaches only see and reach the coaches
+//in their room, so a broadcast costs as much as the room is large, however many coaches the server holds.
+import java.util.concurrent.CompletableFuture;
+
+public class LineupRoom {
+	private final String name;
+	private final RosterStore roster;
+	//Completes once a roster of the room's own has been loaded, right away for a room sharing the default one
+	private final CompletableFuture<Void> rosterLoaded;
+	private final CoachRegistry coaches = new CoachRegistry();
+	private final RosterDeltaBatcher rosterDeltas = new RosterDeltaBatcher(this::broadcastRosterDelta);
+	private final int loopIndex;
+	//Sessions that joined and have not left yet, only changed by LineupRooms while it holds the room's entry
+	private int sessions;
+
+	public LineupRoom(String name, RosterStore roster, int loopIndex) {
+		this(name, roster, CompletableFuture.completedFuture(null), loopIndex);
+	}
+
+	public LineupRoom(String name, RosterStore roster, CompletableFuture<Void> rosterLoaded, int loopIndex) {
+		this.name = name;
+		this.roster = roster;
+		this.rosterLoaded = rosterLoaded;
+		this.loopIndex = loopIndex;
+	}
+
+	//Getters.
+
+	public String getName() {
+		return name;
+	}
+
+	public RosterStore getRoster() {
+		return roster;
+	}
+
+	public CoachRegistry getCoaches() {
+		return coaches;
+	}
+
+	public RosterDeltaBatcher getRosterDeltas() {
+		return rosterDeltas;
+	}
+
+	//Event loop serving the room's coaches in nio mode, taken modulo the number of loops.
+	public int getLoopIndex() {
+		return loopIndex;
+	}
+
+	//Counts a session joining, see LineupRooms.join.
+	public void addSession() {
+		sessions++;
+	}
+
+	//Counts a session leaving and returns how many are left, see LineupRooms.leave.
+	public int removeSession() {
+		return --sessions;
+	}
+
+	//Whether the room's roster can be served yet.
+	public boolean isRosterLoaded() {
+		return rosterLoaded.isDone();
+	}
+
+	//Runs an action once the room's roster is loaded, on the loading thread or right away when it already is.
+	public void whenRosterLoaded(Runnable action) {
+		rosterLoaded.thenRun(action);
+	}
+
+	//Waits for the room's roster to be loaded, for transports that give every coach a thread of its own.
+	public void awaitRoster() {
+		rosterLoaded.join();
+	}
+
+	//Mailbox of a coach of this room. Room names never contain '/', so the same coach name in two rooms never clashes.
+	public String mailboxOf(String coachName) {
+		return name + "/" + coachName;
+	}
+
+	//Sends a message to every coach in the room, only queues it on each coach's outbox.
+	public void broadcast(OutboundMessage message) {
+		long start = System.nanoTime();
+		int recipients = 0;
+		for (CoachSession coach : coaches.all()) {
+			coach.deliver(message);
+			recipients++;
+		}
+		ServerMetrics.recordFanOut("broadcast", recipients, System.nanoTime() - start);
+	}
+
+	//Sends a batch of roster changes to every coach in the room, each in the form it reads (see CoachSession.deliverRosterDelta).
+	private void broadcastRosterDelta(OutboundMessage delta) {
+		long start = System.nanoTime();
+		int recipients = 0;
+		for (CoachSession coach : coaches.all()) {
+			coach.deliverRosterDelta(delta);
+			recipients++;
+		}
+		ServerMetrics.recordFanOut("broadcast", recipients, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,125 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Every room on the server, created the first time a coach joins it and closed once its last coach has left. A room uses
+//ROOMS_DIR/<room>.xml as its roster when that file exists, otherwise it shares SoccerPlayers.xml with the other rooms.
+//Rooms are spread over the event loops round-robin unless pinned to one. How many rooms can be open at once is capped.
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LineupRooms {
+	//Room of coaches who do not ask for one
+	public static final String DEFAULT_ROOM = "main";
+	private static volatile Path roomsDirectory;
+	private static volatile int maxRooms = 1000;
+	private static final Map<String, Integer> pinnedLoops = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, LineupRoom> rooms = new ConcurrentHashMap<>();
+	private final RosterStore sharedRoster = new RosterStore();
+	//One watcher for the shared roster and the rosters of every open room
+	private final RosterReloader reloader = new RosterReloader();
+	private final AtomicInteger nextLoop = new AtomicInteger();
+	//Open rooms other than the default one, which is never refused
+	private final AtomicInteger openRooms = new AtomicInteger();
+	private String sharedRosterFile;
+
+	//Sets the directory holding per-room rosters, null for every room to share the default roster.
+	public static void configure(Path roomsDirectory) {
+		LineupRooms.roomsDirectory = roomsDirectory;
+	}
+
+	//Sets how many rooms besides the default one can be open at once.
+	public static void configureMaxRooms(int maxRooms) {
+		LineupRooms.maxRooms = maxRooms;
+	}
+
+	//Serves a room from the given event loop instead of the next one in turn.
+	public static void pin(String room, int loopIndex) {
+		pinnedLoops.put(room, loopIndex);
+	}
+
+	//Loads the roster shared by rooms without one of their own, called once before coaches connect.
+	public void loadSharedRoster(String filename) {
+		sharedRosterFile = filename;
+		sharedRoster.load(filename);
+	}
+
+	//Reloads the rosters whenever their files are saved. Changes to the shared roster go to every room that uses it.
+	public void watchRosters() {
+		reloader.watch(Path.of(sharedRosterFile), sharedRoster, (updated, removed) -> {
+			for (LineupRoom room : rooms.values()) {
+				if (room.getRoster() == sharedRoster) {
+					room.getRosterDeltas().record(updated, removed);
+				}
+			}
+		});
+		reloader.start();
+	}
+
+	//Joins the room with the given name, creating it on first use. The name must pass WireProtocol.isRoomName.
+	//Returns null when the room would be a new one past the cap. Every join must be matched by one leave.
+	public LineupRoom join(String name) {
+		return rooms.compute(name, (key, room) -> {
+			if (room == null) {
+				if (!key.equals(DEFAULT_ROOM) && openRooms.incrementAndGet() > maxRooms) {
+					openRooms.decrementAndGet();
+					return null;
+				}
+				room = create(key);
+			}
+			room.addSession();
+			return room;
+		});
+	}
+
+	//Leaves a room joined before. The last session out closes the room, which also stops watching its own roster.
+	public void leave(LineupRoom room) {
+		rooms.computeIfPresent(room.getName(), (key, current) -> {
+			if (current != room || current.removeSession() > 0) {
+				return current;
+			}
+			if (current.getRoster() != sharedRoster) {
+				reloader.unwatch(current.getRoster());
+			}
+			if (!key.equals(DEFAULT_ROOM)) {
+				openRooms.decrementAndGet();
+			}
+			ServerLog.info("room_closed", "room", key);
+			return null;
+		});
+	}
+
+	//Live view of every room.
+	public Collection<LineupRoom> all() {
+		return rooms.values();
+	}
+
+	private LineupRoom create(String name) {
+		Integer pinned = pinnedLoops.get(name);
+		int loopIndex = pinned != null ? pinned : nextLoop.getAndIncrement();
+		Path rosterFile = roomsDirectory == null ? null : roomsDirectory.resolve(name + ".xml");
+		if (rosterFile == null || !Files.isRegularFile(rosterFile)) {
+			ServerLog.info("room_opened", "room", name, "loop", loopIndex);
+			return new LineupRoom(name, sharedRoster, loopIndex);
+		}
+		//Parsing or compiling the roster would hold up both this map and the joining coach's event loop, so it is loaded
+		//on its own thread and the room's coaches are only served once it is there (see CoachConnection.joinedRoom)
+		RosterStore roster = new RosterStore();
+		CompletableFuture<Void> loaded = new CompletableFuture<>();
+		LineupRoom room = new LineupRoom(name, roster, loaded, loopIndex);
+		reloader.watch(rosterFile, roster, room.getRosterDeltas()::record);
+		Thread loader = new Thread(() -> {
+			try {
+				roster.load(rosterFile.toString());
+			} finally {
+				loaded.complete(null);
+			}
+		}, "room-roster-loader");
+		loader.setDaemon(true);
+		loader.start();
+		ServerLog.info("room_opened", "room", name, "loop", loopIndex, "roster", rosterFile);
+		return room;
+	}
+}
@@ -1,5 +1,6 @@
 //Author: Nicolas Diaz-Aguilar
 //Main GUI scene, has a LineupController to handle actions.
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -7,22 +8,42 @@ import javafx.geometry.Pos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import java.util.*;
 
 public class LineupScene extends SceneBasic {
+	private static final double PLAYER_RADIUS = 25;
+	//Shared by every player circle instead of allocating a font per player per frame
+	private static final Font NUMBER_FONT = new Font(16);
+	//Past this many separate rectangles per frame, new ones are merged into the closest
+	private static final int MAX_DIRTY_REGIONS = 8;
+	//Rectangles closer than this are repainted as one, a few extra pixels cost less than another clipped pass
+	private static final double DIRTY_MERGE_GAP = 16;
 	private LineupController lineupController;
 	private List<Player> players = new ArrayList<>();
 	private List<Player> selectedPlayers = new ArrayList<>();
 	private TableView<Player> playerTable;
 	private Canvas fieldCanvas;
+	//The pitch is painted once into this image, frames copy the part they repaint from it
+	private WritableImage fieldImage;
+	//Rectangles changed since the last frame, kept apart unless they overlap or nearly touch
+	private final List<DirtyRegion> dirtyRegions = new ArrayList<>(MAX_DIRTY_REGIONS);
+	//Repaints the dirty regions at most once per pulse, however many drag events arrived
+	private final AnimationTimer renderer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			renderDirtyRegions();
+		}
+	};
 	private Player playerBeingDragged;
 	private double prevDragX;
 	private double prevDragY;
 	private Color teamColor;
 	private Button addPlayerButton, removePlayerButton, saveRosterButton, disconnectButton, sendLineupButton;
+	private CheckBox shareBoardCheckBox;
 
 	public LineupScene() {
 		super("Soccer Lineup Builder - " + SceneManager.getCoachName());
@@ -47,7 +68,9 @@ public class LineupScene extends SceneBasic {
 
 		//Create field canvas
 		fieldCanvas = new Canvas(300, 450);
-		drawField();
+		fieldImage = renderFieldImage(fieldCanvas.getWidth(), fieldCanvas.getHeight());
+		redrawField();
+		renderer.start();
 
 		//Create buttons with updated action handlers
 		createButtons();
@@ -60,7 +83,8 @@ public class LineupScene extends SceneBasic {
 				removePlayerButton,
 				sendLineupButton,
 				saveRosterButton, 
-				disconnectButton
+				disconnectButton,
+				shareBoardCheckBox
 				);
 
 		HBox mainLayout = new HBox(20);
@@ -90,7 +114,7 @@ public class LineupScene extends SceneBasic {
 		removePlayerButton = new Button("Remove Player");
 		removePlayerButton.setOnAction(e -> {
 			Player selectedPlayer = playerTable.getSelectionModel().getSelectedItem();
-			if (selectedPlayer != null && selectedPlayer.isOnField(SceneManager.getCoachName())) {
+			if (selectedPlayer != null && selectedPlayer.isOnField()) {
 				lineupController.removePlayerFromField(selectedPlayer);
 			}
 		});
@@ -103,6 +127,9 @@ public class LineupScene extends SceneBasic {
 
 		disconnectButton = new Button("Disconnect");
 		disconnectButton.setOnAction(e -> lineupController.disconnect());
+
+		shareBoardCheckBox = new CheckBox("Share Board");
+		shareBoardCheckBox.setOnAction(e -> lineupController.setSharingBoard(shareBoardCheckBox.isSelected()));
 	}
 
 	//Configures columns in the player selector table.
@@ -121,7 +148,7 @@ public class LineupScene extends SceneBasic {
 
 		TableColumn<Player, String> fieldStatusCol = new TableColumn<>("On Field");
 		fieldStatusCol.setCellValueFactory(cellData -> 
-		new SimpleStringProperty(cellData.getValue().isOnField(SceneManager.getCoachName()) ? "Yes" : "No"));
+		new SimpleStringProperty(cellData.getValue().isOnField() ? "Yes" : "No"));
 
 		playerTable.getColumns().addAll(numberCol, nameCol, positionCol, fieldStatusCol);
 	}
@@ -130,8 +157,8 @@ public class LineupScene extends SceneBasic {
 	private void setupTableSelectionListener() {
 		playerTable.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
 			if (newSelection != null) {
-				addPlayerButton.setDisable(newSelection.isOnField(SceneManager.getCoachName()));
-				removePlayerButton.setDisable(!newSelection.isOnField(SceneManager.getCoachName()));
+				addPlayerButton.setDisable(newSelection.isOnField());
+				removePlayerButton.setDisable(!newSelection.isOnField());
 			}
 		});
 	}
@@ -147,12 +174,31 @@ public class LineupScene extends SceneBasic {
 		playerTable.refresh();
 	}
 
-	//Draws the soccer field, including penalty areas, middle circle, and borders.
-	private void drawField() {
-		GraphicsContext gc = fieldCanvas.getGraphicsContext2D();
-		double width = fieldCanvas.getWidth();
-		double height = fieldCanvas.getHeight();
+	//Redraws the row of a player edited in place, replacing the item with itself updates just that row.
+	public void refreshPlayerRow(Player player) {
+		int row = playerTable.getItems().indexOf(player);
+		if (row >= 0) {
+			playerTable.getItems().set(row, player);
+		}
+	}
+
+	public void addPlayerRow(Player player) {
+		playerTable.getItems().add(player);
+	}
+
+	public void removePlayerRows(List<Player> removed) {
+		playerTable.getItems().removeAll(new HashSet<>(removed));
+	}
+
+	//Paints the field once on an off-screen canvas and keeps a snapshot of it.
+	private WritableImage renderFieldImage(double width, double height) {
+		Canvas layer = new Canvas(width, height);
+		drawField(layer.getGraphicsContext2D(), width, height);
+		return layer.snapshot(null, new WritableImage((int) width, (int) height));
+	}
 
+	//Draws the soccer field, including penalty areas, middle circle, and borders.
+	private void drawField(GraphicsContext gc, double width, double height) {
 		//Background
 		gc.setFill(Color.GREEN);
 		gc.fillRect(0, 0, width, height);
@@ -179,24 +225,124 @@ public class LineupScene extends SceneBasic {
 	}
 
 	//Draws a player on the field.
-	public void drawPlayerOnField(Player player) {
-		GraphicsContext gc = fieldCanvas.getGraphicsContext2D();
-		double radius = 25;
-
-		gc.setFill(player.getPlayerColor());
-		gc.fillOval(player.getX(), player.getY(), radius * 2, radius * 2);
+	private void drawPlayer(GraphicsContext gc, Player player) {
+		gc.setFill(teamColor);
+		gc.fillOval(player.getX(), player.getY(), PLAYER_RADIUS * 2, PLAYER_RADIUS * 2);
 
 		gc.setFill(Color.WHITE);
-		gc.setFont(new Font(16));
-		gc.fillText(String.valueOf(player.getNumber()), player.getX() + radius - 6, player.getY() + radius + 6);
+		gc.setFont(NUMBER_FONT);
+		gc.fillText(String.valueOf(player.getNumber()), player.getX() + PLAYER_RADIUS - 6, player.getY() + PLAYER_RADIUS + 6);
 	}
 
-	//Refreshes the soccer field.
+	//Marks the area a player covers at its current position, call it before and after moving the player.
+	public void markPlayerDirty(Player player) {
+		//One pixel of margin for the anti-aliased edge
+		markDirty(player.getX() - 1, player.getY() - 1, player.getX() + PLAYER_RADIUS * 2 + 1, player.getY() + PLAYER_RADIUS * 2 + 1);
+	}
+
+	//Refreshes the whole soccer field on the next frame.
 	public void redrawField() {
-		drawField();
+		markDirty(0, 0, fieldCanvas.getWidth(), fieldCanvas.getHeight());
+	}
+
+	//One changed rectangle of the canvas.
+	private static final class DirtyRegion {
+		private double minX;
+		private double minY;
+		private double maxX;
+		private double maxY;
+
+		private DirtyRegion(double minX, double minY, double maxX, double maxY) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+		}
+
+		//Whether the rectangles overlap or are less than gap apart.
+		private boolean isNear(DirtyRegion other, double gap) {
+			return other.minX - maxX < gap && minX - other.maxX < gap && other.minY - maxY < gap && minY - other.maxY < gap;
+		}
+
+		private void include(DirtyRegion other) {
+			minX = Math.min(minX, other.minX);
+			minY = Math.min(minY, other.minY);
+			maxX = Math.max(maxX, other.maxX);
+			maxY = Math.max(maxY, other.maxY);
+		}
+
+		//How much area covering the other rectangle too would add.
+		private double growthToInclude(DirtyRegion other) {
+			double width = Math.max(maxX, other.maxX) - Math.min(minX, other.minX);
+			double height = Math.max(maxY, other.maxY) - Math.min(minY, other.minY);
+			return width * height - (maxX - minX) * (maxY - minY);
+		}
+	}
+
+	//Adds a rectangle to repaint, merging it with the ones it overlaps or nearly touches so two drags at opposite ends
+	//of the field stay two small repaints.
+	private void markDirty(double minX, double minY, double maxX, double maxY) {
+		DirtyRegion added = new DirtyRegion(minX, minY, maxX, maxY);
+		//A merged rectangle can reach others, so merge until nothing is near
+		for (int i = 0; i < dirtyRegions.size();) {
+			if (dirtyRegions.get(i).isNear(added, DIRTY_MERGE_GAP)) {
+				added.include(dirtyRegions.remove(i));
+				i = 0;
+			} else {
+				i++;
+			}
+		}
+		if (dirtyRegions.size() < MAX_DIRTY_REGIONS) {
+			dirtyRegions.add(added);
+			return;
+		}
+		DirtyRegion closest = dirtyRegions.get(0);
+		for (DirtyRegion region : dirtyRegions) {
+			if (region.growthToInclude(added) < closest.growthToInclude(added)) {
+				closest = region;
+			}
+		}
+		closest.include(added);
+	}
+
+	//Repaints only the dirty regions, one clipped pass each.
+	private void renderDirtyRegions() {
+		if (dirtyRegions.isEmpty()) {
+			return;
+		}
+		GraphicsContext gc = fieldCanvas.getGraphicsContext2D();
+		for (DirtyRegion region : dirtyRegions) {
+			double x = Math.max(0, Math.floor(region.minX));
+			double y = Math.max(0, Math.floor(region.minY));
+			double width = Math.min(fieldCanvas.getWidth(), Math.ceil(region.maxX)) - x;
+			double height = Math.min(fieldCanvas.getHeight(), Math.ceil(region.maxY)) - y;
+			if (width > 0 && height > 0) {
+				renderRegion(gc, x, y, width, height);
+			}
+		}
+		dirtyRegions.clear();
+	}
+
+	//Repaints one rectangle: the cached field underneath, then the players overlapping it.
+	private void renderRegion(GraphicsContext gc, double x, double y, double width, double height) {
+		gc.save();
+		gc.beginPath();
+		gc.rect(x, y, width, height);
+		gc.clip();
+		gc.drawImage(fieldImage, x, y, width, height, x, y, width, height);
+		double diameter = PLAYER_RADIUS * 2;
 		for (Player player : lineupController.getSelectedPlayers()) {
-			drawPlayerOnField(player);
+			if (player.getX() < x + width && player.getX() + diameter > x
+					&& player.getY() < y + height && player.getY() + diameter > y) {
+				drawPlayer(gc, player);
+			}
 		}
+		gc.restore();
+	}
+
+	//Stops the frame loop once the scene is left.
+	public void stopRendering() {
+		renderer.stop();
 	}
 
 	//Sets up the property for dragging players around the soccer field canvas.
@@ -205,14 +351,9 @@ public class LineupScene extends SceneBasic {
 			double x = e.getX();
 			double y = e.getY();
 
-			for (Player player : lineupController.getSelectedPlayers()) {
-				if (player.containsPoint(x, y)) {
-					playerBeingDragged = player;
-					prevDragX = x;
-					prevDragY = y;
-					break;
-				}
-			}
+			playerBeingDragged = lineupController.getPlayerAt(x, y);
+			prevDragX = x;
+			prevDragY = y;
 		});
 
 		fieldCanvas.setOnMouseDragged(e -> {
@@ -236,8 +377,6 @@ public class LineupScene extends SceneBasic {
 
 				prevDragX = x;
 				prevDragY = y;
-
-				redrawField();
 			}
 		});
 
@@ -276,4 +415,4 @@ public class LineupScene extends SceneBasic {
 			alert.showAndWait();
 		});
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
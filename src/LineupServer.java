@@ -2,35 +2,163 @@
 //Server for Soccer Lineup Builder App.
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 
 public class LineupServer {
 	private static final int LISTENING_PORT = 35007;
-	private static List<Player> players = new ArrayList<>();
 
+	//Usage: java LineupServer [--mode=threads|nio] [--threads=platform|virtual] [--loops=N]
+	//                         [--outbox=N] [--overflow=drop|coalesce|disconnect] [--delta-window=MILLIS]
+	//                         [--offer-ttl=SECONDS] [--offer-spill=FILE] [--resume-grace=SECONDS] [--replay=BYTES]
+	//                         [--heartbeat=SECONDS] [--idle-timeout=SECONDS] [--metrics-port=N] [--verbose]
+	//                         [--log-level=debug|info|warn|error] [--log-file=FILE] [--log-file-size=BYTES] [--log-files=N]
+	//                         [--rooms-dir=DIR] [--pin-room=ROOM:LOOP]... [--max-rooms=N]
 	public static void main(String[] args) {
+		String mode = "threads";
+		String threadKind = "platform";
+		int loopCount = Runtime.getRuntime().availableProcessors();
+		int outboxCapacity = 256;
+		CoachOutbox.OverflowPolicy overflowPolicy = CoachOutbox.OverflowPolicy.COALESCE;
+		long offerTtlSeconds = 600;
+		Path offerSpill = null;
+		long resumeGraceSeconds = 30;
+		int replayBytes = 256 * 1024;
+		long heartbeatSeconds = 15;
+		long idleTimeoutSeconds = 45;
+		int metricsPort = 0;
+		Path logFile = null;
+		long logFileSize = 10 * 1024 * 1024;
+		int logFiles = 5;
+		for (String arg : args) {
+			if (arg.startsWith("--mode=")) {
+				mode = arg.substring("--mode=".length());
+			} else if (arg.startsWith("--threads=")) {
+				threadKind = arg.substring("--threads=".length());
+			} else if (arg.startsWith("--loops=")) {
+				loopCount = Integer.parseInt(arg.substring("--loops=".length()));
+			} else if (arg.startsWith("--outbox=")) {
+				outboxCapacity = Integer.parseInt(arg.substring("--outbox=".length()));
+			} else if (arg.startsWith("--overflow=")) {
+				overflowPolicy = CoachOutbox.OverflowPolicy.valueOf(arg.substring("--overflow=".length()).toUpperCase());
+			} else if (arg.startsWith("--delta-window=")) {
+				RosterDeltaBatcher.configure(Long.parseLong(arg.substring("--delta-window=".length())));
+			} else if (arg.startsWith("--offer-ttl=")) {
+				offerTtlSeconds = Long.parseLong(arg.substring("--offer-ttl=".length()));
+			} else if (arg.startsWith("--offer-spill=")) {
+				offerSpill = Path.of(arg.substring("--offer-spill=".length()));
+			} else if (arg.startsWith("--resume-grace=")) {
+				resumeGraceSeconds = Long.parseLong(arg.substring("--resume-grace=".length()));
+			} else if (arg.startsWith("--replay=")) {
+				replayBytes = Integer.parseInt(arg.substring("--replay=".length()));
+			} else if (arg.startsWith("--heartbeat=")) {
+				heartbeatSeconds = Long.parseLong(arg.substring("--heartbeat=".length()));
+			} else if (arg.startsWith("--idle-timeout=")) {
+				idleTimeoutSeconds = Long.parseLong(arg.substring("--idle-timeout=".length()));
+			} else if (arg.startsWith("--metrics-port=")) {
+				metricsPort = Integer.parseInt(arg.substring("--metrics-port=".length()));
+			} else if (arg.equals("--verbose")) {
+				ServerLog.setLevel(ServerLog.Level.DEBUG);
+			} else if (arg.startsWith("--log-level=")) {
+				ServerLog.setLevel(ServerLog.Level.valueOf(arg.substring("--log-level=".length()).toUpperCase()));
+			} else if (arg.startsWith("--log-file=")) {
+				logFile = Path.of(arg.substring("--log-file=".length()));
+			} else if (arg.startsWith("--log-file-size=")) {
+				logFileSize = Long.parseLong(arg.substring("--log-file-size=".length()));
+			} else if (arg.startsWith("--log-files=")) {
+				logFiles = Integer.parseInt(arg.substring("--log-files=".length()));
+			} else if (arg.startsWith("--rooms-dir=")) {
+				LineupRooms.configure(Path.of(arg.substring("--rooms-dir=".length())));
+			} else if (arg.startsWith("--max-rooms=")) {
+				LineupRooms.configureMaxRooms(Integer.parseInt(arg.substring("--max-rooms=".length())));
+			} else if (arg.startsWith("--pin-room=")) {
+				String pin = arg.substring("--pin-room=".length());
+				int separator = pin.lastIndexOf(':');
+				LineupRooms.pin(pin.substring(0, separator), Integer.parseInt(pin.substring(separator + 1)));
+			}
+		}
+		if (logFile != null) {
+			try {
+				ServerLog.logToFile(logFile, logFileSize, logFiles);
+			} catch (IOException e) {
+				ServerLog.error("log_file_not_opened", "file", logFile, "error", e.getMessage());
+			}
+		}
+		CoachOutbox.configure(outboxCapacity, overflowPolicy);
+		LineupMailboxes.configure(offerTtlSeconds, offerSpill);
+		CoachSession.configureResumption(resumeGraceSeconds, replayBytes);
+		CoachSession.configureHeartbeat(heartbeatSeconds, idleTimeoutSeconds);
+
 		//Load all players from XML once server starts
-		loadPlayersFromXML();
+		CoachSession.loadInitialPlayers();
+		CoachSession.watchRosterFile();
+		CoachSession.restoreLineupOffers();
+		CoachSession.registerMetrics();
+		if (metricsPort > 0) {
+			try {
+				MetricsEndpoint.start(metricsPort);
+			} catch (IOException e) {
+				ServerLog.error("metrics_not_started", "port", metricsPort, "error", e.getMessage());
+			}
+		}
 
-		try (ServerSocket serverSocket = new ServerSocket(LISTENING_PORT)) {
-			System.out.println("Soccer Lineup Builder Server listening on port: " + LISTENING_PORT);
+		if (mode.equals("nio")) {
+			runEventLoops(loopCount);
+		} else {
+			runThreadPerCoach(threadKind.equals("virtual"));
+		}
+	}
+
+	//Serves every coach with its own blocking thread, either a platform thread or a virtual thread.
+	private static void runThreadPerCoach(boolean virtualThreads) {
+		ThreadFactory coachThreads = virtualThreads
+				? Thread.ofVirtual().name("coach-", 0).factory()
+				: Thread.ofPlatform().name("coach-", 0).factory();
+
+		try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+				ExecutorService coachExecutor = Executors.newThreadPerTaskExecutor(coachThreads)) {
+			serverChannel.bind(new InetSocketAddress(LISTENING_PORT));
+			ServerLog.info("server_listening", "port", LISTENING_PORT, "mode", virtualThreads ? "virtual_threads" : "platform_threads");
 
 			while (true) {
-				Socket coachConnection = serverSocket.accept();
-				System.out.println("New coach connected -> IP Address: " + coachConnection.getInetAddress());
+				SocketChannel coachConnection = serverChannel.accept();
+				if (ServerLog.isEnabled(ServerLog.Level.DEBUG)) {
+					ServerLog.debug("connection_accepted", "address", coachConnection.getRemoteAddress());
+				}
 
-				//Create and start a new thread for each coach
-				LineupThread coachThread = new LineupThread(coachConnection);
-				coachThread.start();
+				//Run each coach session on its own thread
+				coachExecutor.execute(new LineupThread(coachConnection, coachThreads));
 			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			ServerLog.error("server_stopped", "error", e.getMessage());
 		}
 	}
 
-	//Use existing PlayerXMLReader to load players from XML file.
-	private static void loadPlayersFromXML() {
-		players = new ArrayList<>(PlayerXMLReader.readFile("SoccerPlayers.xml").values());
+	//Serves all coaches from a few selector threads, accepted channels are spread round-robin.
+	private static void runEventLoops(int loopCount) {
+		try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			serverChannel.bind(new InetSocketAddress(LISTENING_PORT));
+			LineupEventLoop[] loops = new LineupEventLoop[Math.max(1, loopCount)];
+			for (int i = 0; i < loops.length; i++) {
+				loops[i] = new LineupEventLoop(i, loops);
+				loops[i].start();
+			}
+			ServerLog.info("server_listening", "port", LISTENING_PORT, "mode", "nio", "loops", loops.length);
+
+			int next = 0;
+			while (true) {
+				SocketChannel coachChannel = serverChannel.accept();
+				if (ServerLog.isEnabled(ServerLog.Level.DEBUG)) {
+					ServerLog.debug("connection_accepted", "address", coachChannel.getRemoteAddress());
+				}
+				loops[next].register(coachChannel);
+				next = (next + 1) % loops.length;
+			}
+		} catch (IOException e) {
+			ServerLog.error("server_stopped", "error", e.getMessage());
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,232 +1,136 @@
 //Authors: Nicolas Diaz-Aguilar & Vicente Lyon
-//Soccer Lineup Builder Server Thread - Handles actions from both coaches to and from the server.
+//Soccer Lineup Builder Server Thread - Reads a coach's channel with blocking I/O and feeds its CoachSession.
+//Runs on a platform or virtual thread, a second writer thread drains the coach's outbox so slow clients never block other sessions.
 import java.io.*;
-import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-
-public class LineupThread extends Thread {
-	private final Socket coachSocket;
-	private BufferedReader incoming;
-	private PrintWriter outgoing;
-	private static final ConcurrentHashMap<String, Player> serverPlayers = new ConcurrentHashMap<>();
-	private static List<LineupThread> activeCoaches = Collections.synchronizedList(new ArrayList<>());
-	private List<String> pendingLineupData = new ArrayList<>();
-	private boolean isRunning = true;
-	private String coachName;
-
-	public LineupThread(Socket coachSocket) {
-		this.coachSocket = coachSocket;
-		loadInitialPlayers();
+import java.util.concurrent.ThreadFactory;
+
+public class LineupThread implements Runnable, CoachConnection {
+	private static final int READ_BUFFER_SIZE = 8192;
+	private static final int WRITE_BATCH = 64;
+	private final SocketChannel coachChannel;
+	private final ThreadFactory writerThreads;
+	private final CoachOutbox outbox = new CoachOutbox();
+	private final CoachSession session;
+
+	public LineupThread(SocketChannel coachChannel, ThreadFactory writerThreads) {
+		this.coachChannel = coachChannel;
+		this.writerThreads = writerThreads;
+		this.session = new CoachSession(this);
 	}
 
 	@Override
 	public void run() {
 		try {
-			setupStreams();
-			synchronized(activeCoaches) {
-				activeCoaches.add(this);
-			}
-
-			String coachNameLine = incoming.readLine();
-			if (coachNameLine != null && coachNameLine.equals("Coach name:")) {
-				coachName = incoming.readLine();
-				System.out.println("Coach connected: " + coachName);
-			}
-
+			writerThreads.newThread(this::writeOutbox).start();
 			processCoachCommands();
-		} catch (IOException e) {
-			System.out.println("Session error: " + e.getMessage());
 		} finally {
-			cleanup();
+			session.end();
+			close();
 		}
 	}
 
-	//Loads the initial players for each thread.
-	private void loadInitialPlayers() {
-		synchronized(serverPlayers) {
-			if (serverPlayers.isEmpty()) {
-				try {
-					HashMap<String, Player> loadedPlayers = PlayerXMLReader.readFile("SoccerPlayers.xml");
-					serverPlayers.putAll(loadedPlayers);
-				} catch (Exception e) {
-					System.err.println("Error loading initial players: " + e.getMessage());
+	//Process commands, the session decodes them as text lines or binary frames.
+	private void processCoachCommands() {
+		ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		try {
+			int read;
+			while (session.isRunning() && (read = coachChannel.read(readBuffer)) >= 0) {
+				ServerMetrics.addBytesIn(read);
+				readBuffer.flip();
+				while (session.isRunning() && session.decodeNext(readBuffer)) {
+					outbox.awaitBelowCapacity();
 				}
+				readBuffer.clear();
 			}
+		} catch (IOException e) {
+			ServerLog.warn("read_failed", "coach", session.getCoachName(), "error", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
-	//Setup streams.
-	private void setupStreams() throws IOException {
-		incoming = new BufferedReader(new InputStreamReader(coachSocket.getInputStream()));
-		outgoing = new PrintWriter(coachSocket.getOutputStream(), true);
-	}
-
-	//Process commands.
-	private void processCoachCommands() {
+	//Writer loop, writes queued messages with one gathering write per batch until the outbox is closed and empty.
+	private void writeOutbox() {
+		List<ByteBuffer> batch = new ArrayList<>(WRITE_BATCH);
+		ByteBuffer[] gather = new ByteBuffer[WRITE_BATCH];
 		try {
-			String command;
-			while (isRunning && (command = incoming.readLine()) != null) {
-				handleCommand(command);
+			while (outbox.awaitMessages()) {
+				outbox.drainTo(batch, WRITE_BATCH);
+				batch.toArray(gather);
+				int first = 0;
+				while (first < batch.size()) {
+					ServerMetrics.addBytesOut(coachChannel.write(gather, first, batch.size() - first));
+					while (first < batch.size() && !gather[first].hasRemaining()) {
+						first++;
+					}
+				}
+				batch.clear();
 			}
 		} catch (IOException e) {
-			System.out.println("Error processing commands: " + e.getMessage());
+			ServerLog.warn("write_failed", "coach", session.getCoachName(), "error", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			outbox.close();
+			closeChannel();
 		}
 	}
 
-	//Handle coach commands.
-	private void handleCommand(String command) throws IOException {
-		System.out.println("Received command from: " + coachName + ": " + command);
-
-		switch (command) {
-		case "GET_PLAYERS":
-			sendPlayerList();
-			break;
-		case "ADD_PLAYER":
-			handleAddPlayer();
-			break;
-		case "GET_ACTIVE_COACHES":
-			sendActiveCoaches();
-			break;
-		case "SEND_LINEUP_TO":
-			handleLineupSend();
-			break;
-		case "ACCEPT_LINEUP":
-			handleLineupAccept();
-			break;
-		case "DECLINE_LINEUP":
-			handleLineupDecline();
-			break;
-		case "REMOVE_PLAYER":
-			handleRemovePlayer();
-			break;
-		case "QUIT":
-			isRunning = false;
-			break;
-		}
+	//Queues a reply for the writer thread.
+	@Override
+	public void send(OutboundMessage message) {
+		outbox.add(message);
 	}
 
-	//Sends player list.
-	private void sendPlayerList() {
-		try {
-			outgoing.println("BEGIN_PLAYER_LIST");
-			for (Player player : serverPlayers.values()) {
-				outgoing.println(player.getNumber());
-				outgoing.println(player.getName());
-				outgoing.println(player.getPosition());
-			}
-			outgoing.println("END_PLAYER_LIST");
-			outgoing.flush();
-		} catch (Exception e) {
-			System.err.println("Error sending player list: " + e.getMessage());
+	//Queues a broadcast, drops the coach if its outbox overflows under the DISCONNECT policy.
+	@Override
+	public void deliver(OutboundMessage message) {
+		if (!outbox.offer(message)) {
+			ServerLog.warn("slow_coach_disconnected", "coach", session.getCoachName());
+			outbox.close();
+			closeChannel();
 		}
 	}
 
-	//Adds a player from the list to the lineup.
-	private void handleAddPlayer() throws IOException {
-		String playerNumber = incoming.readLine();
-		Player player = serverPlayers.get(playerNumber);
-		if (player != null) {
-			outgoing.println("SUCCESS");
-			outgoing.println(player.getNumber());
-			outgoing.println(player.getName());
-			outgoing.println(player.getPosition());
-			notifyOtherCoaches("PLAYERS_UPDATED");
-		} else {
-			outgoing.println("ERROR: Player not found");
-		}
+	@Override
+	public void useBinaryOutput() {
+		outbox.useBinary();
 	}
 
-	//Removes a player from the lineup.
-	private void handleRemovePlayer() throws IOException {
-		String playerNumber = incoming.readLine();
-		if (serverPlayers.containsKey(playerNumber)) {
-			outgoing.println("SUCCESS");
-			notifyOtherCoaches("PLAYERS_UPDATED");
-		} else {
-			outgoing.println("ERROR: Player not found");
-		}
+	@Override
+	public CoachOutbox getOutbox() {
+		return outbox;
 	}
 
-	//Notifies other coach commands applied.
-	private void notifyOtherCoaches(String message) {
-		synchronized(activeCoaches) {
-			for (LineupThread coach : activeCoaches) {
-				if (coach != this) {
-					coach.outgoing.println(message);
-				}
-			}
-		}
+	//Every coach has its own threads, there is nothing to move and the reader can simply wait for the roster.
+	@Override
+	public void joinedRoom(LineupRoom room) {
+		room.awaitRoster();
 	}
 
-	//Sends the list of active coaches using the app.
-	private void sendActiveCoaches() {
-		outgoing.println("ACTIVE_COACHES");
-		synchronized(activeCoaches) {
-			for (LineupThread coach : activeCoaches) {
-				if (coach != this) {
-					outgoing.println(coach.coachName);
-				}
-			}
-		}
-		outgoing.println("END_COACHES");
+	//Stops the writer once it has flushed the outbox, the writer then closes the channel.
+	@Override
+	public void close() {
+		outbox.close();
 	}
 
-	//Handles lineup offerings from coaches.
-	private void handleLineupSend() throws IOException {
-		String targetCoach = incoming.readLine();
-		synchronized(activeCoaches) {
-			for (LineupThread coach : activeCoaches) {
-				if (coach.coachName.equals(targetCoach)) {
-					coach.outgoing.println("LINEUP_OFFER");
-					coach.outgoing.println(this.coachName);
-					
-					coach.pendingLineupData.clear();
-					String line;
-					while (!(line = incoming.readLine()).equals("END_LINEUP")) {
-						coach.pendingLineupData.add(line);
-					}
-					break;
-				}
-			}
-		}
-	}
-	
-	//Handles lineup acceptance by sending a String that accepts it.
-	private void handleLineupAccept() throws IOException {
-		outgoing.println("LINEUP_RECEIVED");
-		for (String data : pendingLineupData) {
-			outgoing.println(data);
-		}
-		outgoing.println("END_LINEUP");
-		outgoing.flush();
-		pendingLineupData.clear();
-	}
-	
-	//Handles lineup denial by sending a String that declines it.
-	private void handleLineupDecline() {
-		outgoing.println("LINEUP_DECLINED");
+	//Closing the channel wakes the reader, which then ends the session.
+	@Override
+	public void abort() {
+		outbox.close();
+		closeChannel();
 	}
 
-	//Closes sockets.
-	private void cleanup() {
+	//Closes the channel, which also wakes a reader blocked on it.
+	private void closeChannel() {
 		try {
-			synchronized(activeCoaches) {
-				activeCoaches.remove(this);
-				for(LineupThread coach : activeCoaches) {
-					coach.outgoing.println("COACH_DISCONNECTED");
-					coach.outgoing.println(this.coachName);
-				}
-			}
-			
-			if (incoming != null) incoming.close();
-			if (outgoing != null) outgoing.close();
-			if (coachSocket != null) coachSocket.close();
+			coachChannel.close();
 		} catch (IOException e) {
-			e.printStackTrace();
+			ServerLog.warn("close_failed", "coach", session.getCoachName(), "error", e.getMessage());
 		}
 	}
-}
\ No newline at end of file
+}
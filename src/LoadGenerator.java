@@ -0,0 +1,69 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Headless load generator - Runs many simulated coaches against a LineupServer, one virtual thread each, then prints
+//throughput and p50/p99/p999 latency per command.
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LoadGenerator {
+	private static final String DEFAULT_SCRIPT = "players,add,coaches,send,accept,lineup,remove,drop";
+
+	//Usage: java LoadGenerator [--host=HOST] [--port=N] [--coaches=N] [--duration=SECONDS] [--ramp=SECONDS]
+	//                          [--think=MILLIS] [--script=STEP,...] [--rooms=N] [--text]
+	public static void main(String[] args) throws InterruptedException {
+		String host = "localhost";
+		int port = 35007;
+		int coachCount = 1000;
+		long durationSeconds = 60;
+		long rampSeconds = 10;
+		long thinkMillis = 100;
+		String script = DEFAULT_SCRIPT;
+		int roomCount = 1;
+		for (String arg : args) {
+			if (arg.startsWith("--host=")) {
+				host = arg.substring("--host=".length());
+			} else if (arg.startsWith("--port=")) {
+				port = Integer.parseInt(arg.substring("--port=".length()));
+			} else if (arg.startsWith("--coaches=")) {
+				coachCount = Integer.parseInt(arg.substring("--coaches=".length()));
+			} else if (arg.startsWith("--duration=")) {
+				durationSeconds = Long.parseLong(arg.substring("--duration=".length()));
+			} else if (arg.startsWith("--ramp=")) {
+				rampSeconds = Long.parseLong(arg.substring("--ramp=".length()));
+			} else if (arg.startsWith("--think=")) {
+				thinkMillis = Long.parseLong(arg.substring("--think=".length()));
+			} else if (arg.startsWith("--script=")) {
+				script = arg.substring("--script=".length());
+			} else if (arg.startsWith("--rooms=")) {
+				roomCount = Math.max(1, Integer.parseInt(arg.substring("--rooms=".length())));
+			} else if (arg.equals("--text")) {
+				//Read by ServerChannel.open
+				System.setProperty("lineup.textProtocol", "true");
+			}
+		}
+		List<String> steps = Arrays.asList(script.split(","));
+		for (String step : steps) {
+			if (!SimulatedCoach.STEPS.contains(step)) {
+				System.out.println("Unknown step: " + step + ", expected one of " + SimulatedCoach.STEPS);
+				return;
+			}
+		}
+
+		System.out.println("Simulating " + coachCount + " coaches against " + host + ":" + port + " for " + durationSeconds
+				+ " s, script " + script + (roomCount > 1 ? ", " + roomCount + " rooms" : ""));
+		LoadReport report = new LoadReport();
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+		//Coaches are started evenly over the ramp so the server is not hit by every login at once
+		long startInterval = TimeUnit.SECONDS.toNanos(rampSeconds) / Math.max(1, coachCount);
+		try (ExecutorService coaches = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < coachCount; i++) {
+				coaches.execute(new SimulatedCoach(host, port, i, coachCount, roomCount, steps, thinkMillis, deadline, report));
+				TimeUnit.NANOSECONDS.sleep(startInterval);
+			}
+		}
+		report.print(System.out, (System.nanoTime() - start) / 1e9);
+	}
+}
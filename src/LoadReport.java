@@ -0,0 +1,66 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Latencies and errors per command type collected from every simulated coach, printed as one table at the end of a run.
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadReport {
+	private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+	private final Map<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+	private final LongAdder failedResumes = new LongAdder();
+	private final LongAdder renamedCoaches = new LongAdder();
+
+	//Records a command the server answered, refused ones count as errors too.
+	public void record(String command, long nanos, boolean succeeded) {
+		latencies.computeIfAbsent(command, key -> new LatencyHistogram()).record(nanos);
+		if (!succeeded) {
+			failed(command);
+		}
+	}
+
+	//Counts a command that got no answer (timeout or dropped connection).
+	public void failed(String command) {
+		errors.computeIfAbsent(command, key -> new LongAdder()).increment();
+	}
+
+	//Counts a coach whose session was gone when it came back, so it logged in again with an empty field.
+	public void resumeFailed() {
+		failedResumes.increment();
+	}
+
+	//Counts a coach the server registered under another name than the one it logged in with.
+	public void renamed() {
+		renamedCoaches.increment();
+	}
+
+	//Prints count, errors, throughput and latency percentiles (in microseconds) for each command.
+	public void print(PrintStream out, double seconds) {
+		out.printf("%-20s %9s %7s %9s %9s %9s %9s %9s%n", "command", "count", "errors", "ops/s", "p50 us", "p99 us", "p999 us", "max us");
+		long total = 0;
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			total += histogram.getCount();
+			out.printf("%-20s %9d %7d %9.1f %9d %9d %9d %9d%n", entry.getKey(), histogram.getCount(), errorCount(entry.getKey()),
+					histogram.getCount() / seconds, micros(histogram.valueAtPercentile(50)), micros(histogram.valueAtPercentile(99)),
+					micros(histogram.valueAtPercentile(99.9)), micros(histogram.getMax()));
+		}
+		for (String command : errors.keySet()) {
+			if (!latencies.containsKey(command)) {
+				out.printf("%-20s %9d %7d%n", command, 0, errorCount(command));
+			}
+		}
+		out.printf("%-20s %9d %7s %9.1f%n", "total", total, "", total / seconds);
+		out.printf("%d resumes failed and logged in again, %d coaches were renamed by the server%n", failedResumes.sum(),
+				renamedCoaches.sum());
+	}
+
+	private long errorCount(String command) {
+		LongAdder count = errors.get(command);
+		return count == null ? 0 : count.sum();
+	}
+
+	private static long micros(long nanos) {
+		return nanos / 1000;
+	}
+}
@@ -1,7 +1,6 @@
 //Author: Vicente Lyon
 //Login Scene
 
-import java.io.PrintWriter;
 import java.net.Socket;
 
 import javafx.geometry.Pos;
@@ -12,6 +11,7 @@ import javafx.scene.layout.HBox;
 
 public class LoginScene extends SceneBasic {
 	private TextField nameField;
+	private TextField roomField;
 	private TextField serverField;
 	private TextField portField;
 	private Label statusLabel;
@@ -40,6 +40,13 @@ public class LoginScene extends SceneBasic {
 		nameField.setPromptText("Enter coach name");
 		nameBox.getChildren().addAll(new Label("Name:"), nameField);
 
+		//Room input, left empty for the server's default room
+		HBox roomBox = new HBox(10);
+		roomBox.setAlignment(Pos.CENTER);
+		roomField = new TextField();
+		roomField.setPromptText("Optional room");
+		roomBox.getChildren().addAll(new Label("Room:"), roomField);
+
 		//Status label for feedback
 		statusLabel = new Label("");
 		statusLabel.setStyle("-fx-text-fill: red;");
@@ -49,7 +56,7 @@ public class LoginScene extends SceneBasic {
 		connectButton.setMinWidth(200);
 		connectButton.setOnAction(e -> connect());
 
-		root.getChildren().addAll(serverBox, portBox, nameBox, statusLabel, connectButton);
+		root.getChildren().addAll(serverBox, portBox, nameBox, roomBox, statusLabel, connectButton);
 	}
 
 	//Establishes connection for coach.
@@ -58,19 +65,23 @@ public class LoginScene extends SceneBasic {
 			String server = serverField.getText();
 			int port = Integer.parseInt(portField.getText());
 			String coachName = nameField.getText().trim();
+			String room = roomField.getText().trim();
 
 			if (coachName.isEmpty()) {
 				statusLabel.setText("Please enter a coach name!");
 				return;
 			}
+			if (!room.isEmpty() && !WireProtocol.isRoomName(room)) {
+				statusLabel.setText("Room names use letters, digits, spaces, '-', '_' and '.'");
+				return;
+			}
 			Socket socket = new Socket(server, port);
 			SceneManager.setSocket(socket);
 			SceneManager.setCoachName(coachName);
 
-			PrintWriter out = SceneManager.getOutgoing();
-			out.println("Coach name:");
-			out.println(coachName);
-			out.flush();
+			ServerChannel channel = SceneManager.getServerChannel();
+			channel.setRoom(room.isEmpty() ? null : room);
+			channel.open(coachName);
 
 			SceneManager.setScene(SceneManager.SceneType.lineup);
 
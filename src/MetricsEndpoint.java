@@ -0,0 +1,44 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Local HTTP endpoint, bound to the loopback address only: GET /metrics returns ServerMetrics in the Prometheus text
+//format, /verbose?on and /verbose?off switch the debug log (one event per command) on and off.
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class MetricsEndpoint {
+	private MetricsEndpoint() {
+	}
+
+	//Starts serving on its own thread.
+	public static void start(int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", exchange -> {
+			StringBuilder body = new StringBuilder();
+			ServerMetrics.writeTo(body);
+			respond(exchange, body.toString());
+		});
+		server.createContext("/verbose", exchange -> {
+			String query = exchange.getRequestURI().getQuery();
+			if ("on".equals(query) || "off".equals(query)) {
+				ServerLog.setLevel(query.equals("on") ? ServerLog.Level.DEBUG : ServerLog.Level.INFO);
+			}
+			respond(exchange, "log level " + ServerLog.getLevel().name().toLowerCase() + "\n");
+		});
+		server.start();
+		ServerLog.info("metrics_listening", "url", "http://localhost:" + port + "/metrics");
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
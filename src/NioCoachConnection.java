@@ -0,0 +1,177 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Non-blocking coach connection - Feeds incoming bytes to the coach's session, its event loop drains the coach's outbox.
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class NioCoachConnection implements CoachConnection {
+	private static final int READ_BUFFER_SIZE = 8192;
+	private static final int WRITE_BATCH = 64;
+	private final SocketChannel channel;
+	//Changes once, when the coach joins a room served by another loop
+	private volatile LineupEventLoop loop;
+	private final CoachSession session;
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private final CoachOutbox outbox = new CoachOutbox();
+	private final List<ByteBuffer> writing = new ArrayList<>(WRITE_BATCH);
+	private final ByteBuffer[] gather = new ByteBuffer[WRITE_BATCH];
+	private volatile SelectionKey key;
+	private volatile boolean closing;
+	//Loop of the coach's room, set while the handshake is decoded and taken over once the current input is processed
+	private LineupEventLoop movingTo;
+	//Room the coach joined, the move also waits for its roster to load
+	private LineupRoom joining;
+
+	public NioCoachConnection(SocketChannel channel, LineupEventLoop loop) {
+		this.channel = channel;
+		this.loop = loop;
+		this.session = new CoachSession(this);
+	}
+
+	//Called by the event loop once the channel is registered with its selector.
+	void registered(SelectionKey key) {
+		this.key = key;
+	}
+
+	//Reads whatever is available and hands it to the session.
+	void onReadable() throws IOException {
+		int read = channel.read(readBuffer);
+		if (read < 0) {
+			closeNow();
+			return;
+		}
+		ServerMetrics.addBytesIn(read);
+		processInput();
+	}
+
+	//Hands every complete buffered line or frame to the session, pausing while the coach's own replies pile up.
+	private void processInput() throws IOException {
+		readBuffer.flip();
+		while (session.isRunning() && movingTo == null && session.decodeNext(readBuffer)) {
+			if (outbox.isFull()) {
+				break;
+			}
+		}
+		readBuffer.compact();
+
+		if (!session.isRunning()) {
+			close();
+		} else if (movingTo != null) {
+			moveToRoomLoop();
+		} else if (outbox.isFull()) {
+			//Stop reading commands until the coach catches up with its replies
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		}
+	}
+
+	//Writes queued messages with gathering writes until the socket buffer fills up.
+	void onWritable() throws IOException {
+		while (!writing.isEmpty() || outbox.drainTo(writing, WRITE_BATCH) > 0) {
+			ServerMetrics.addBytesOut(channel.write(writing.toArray(gather), 0, writing.size()));
+			writing.removeIf(buffer -> !buffer.hasRemaining());
+			if (!writing.isEmpty()) {
+				return;
+			}
+		}
+		if (closing) {
+			closeNow();
+			return;
+		}
+		key.interestOps((key.interestOps() & ~SelectionKey.OP_WRITE) | SelectionKey.OP_READ);
+		if (readBuffer.position() > 0) {
+			processInput();
+		}
+	}
+
+	//Leaves this loop for the loop of the coach's room, which picks up any command already buffered once the room's roster
+	//is loaded. Waiting on the same loop works the same way, its selector drops the cancelled key before adopt runs.
+	private void moveToRoomLoop() {
+		LineupEventLoop target = movingTo;
+		LineupRoom room = joining;
+		movingTo = null;
+		joining = null;
+		key.cancel();
+		key = null;
+		loop = target;
+		room.whenRosterLoaded(() -> target.adopt(channel, this));
+	}
+
+	//Queues a reply, only called on the event loop thread.
+	@Override
+	public void send(OutboundMessage message) {
+		outbox.add(message);
+		loop.requestWrite(this);
+	}
+
+	//Queues a broadcast, safe to call from any thread.
+	@Override
+	public void deliver(OutboundMessage message) {
+		if (outbox.offer(message)) {
+			loop.requestWrite(this);
+		} else {
+			ServerLog.warn("slow_coach_disconnected", "coach", session.getCoachName());
+			outbox.close();
+			loop.execute(this::closeNow);
+		}
+	}
+
+	@Override
+	public void useBinaryOutput() {
+		outbox.useBinary();
+	}
+
+	@Override
+	public CoachOutbox getOutbox() {
+		return outbox;
+	}
+
+	//Called on the loop thread while the handshake is decoded, the move waits until the session stops reading.
+	@Override
+	public void joinedRoom(LineupRoom room) {
+		LineupEventLoop target = loop.forRoom(room);
+		if (target != loop || !room.isRosterLoaded()) {
+			movingTo = target;
+			joining = room;
+		}
+	}
+
+	//Closes after the queued messages have been flushed.
+	@Override
+	public void close() {
+		closing = true;
+		outbox.close();
+		loop.requestWrite(this);
+	}
+
+	//Safe to call from any thread, the loop closes the channel and ends the session.
+	@Override
+	public void abort() {
+		outbox.close();
+		loop.execute(this::closeNow);
+	}
+
+	//Enables write interest, only called on the event loop thread.
+	void enableWrites() {
+		if (key != null && key.isValid()) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		}
+	}
+
+	//Closes immediately and ends the session.
+	void closeNow() {
+		session.end();
+		outbox.close();
+		writing.clear();
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			ServerLog.warn("close_failed", "coach", session.getCoachName(), "error", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,172 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Append-only log of lineup offers: an OFFER record when an offer is posted and a DONE record when it is answered or expires.
+//Records are appended by one background thread so sessions never wait on the disk. A record cut short by a crash ends the log.
+//Once most records are dead the log is rewritten with only the waiting offers, so a long-running server does not grow it forever.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class OfferSpillFile {
+	private static final byte OFFER = 1;
+	private static final byte DONE = 2;
+	//Records below this are never worth rewriting
+	private static final int COMPACT_MIN_RECORDS = 1024;
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "offer-spill");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Path file;
+	//Only used on the writer thread: the open log, the offers it holds that are still waiting and how many records it has
+	private DataOutputStream out;
+	private final LinkedHashMap<Long, LineupOffer> live = new LinkedHashMap<>();
+	private int records;
+
+	//Starts a fresh log holding only the offers still waiting, so answered and expired offers do not pile up across restarts.
+	public OfferSpillFile(Path file, List<LineupOffer> waiting) throws IOException {
+		this.file = file;
+		for (LineupOffer offer : waiting) {
+			live.put(offer.getId(), offer);
+		}
+		rewrite();
+	}
+
+	//Replays the log and returns the offers that were never answered and have not expired, oldest first.
+	public static List<LineupOffer> readWaiting(Path file, long nowMillis) throws IOException {
+		LinkedHashMap<Long, LineupOffer> waiting = new LinkedHashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			while (true) {
+				byte type = in.readByte();
+				if (type == OFFER) {
+					LineupOffer offer = readOffer(in);
+					waiting.put(offer.getId(), offer);
+				} else if (type == DONE) {
+					waiting.remove(in.readLong());
+				} else {
+					throw new IOException("Corrupt lineup offer log");
+				}
+			}
+		} catch (NoSuchFileException | EOFException e) {
+			//No log yet, or the end of it
+		}
+		List<LineupOffer> offers = new ArrayList<>(waiting.size());
+		for (LineupOffer offer : waiting.values()) {
+			if (!offer.isExpired(nowMillis)) {
+				offers.add(offer);
+			}
+		}
+		return offers;
+	}
+
+	//Logs a posted offer.
+	public void appendOffer(LineupOffer offer) {
+		writer.execute(() -> {
+			try {
+				writeOffer(out, offer);
+				out.flush();
+				live.put(offer.getId(), offer);
+				recorded();
+			} catch (IOException e) {
+				ServerLog.error("offer_spill_failed", "offer", offer.getId(), "error", e.getMessage());
+			}
+		});
+	}
+
+	//Logs that an offer was answered.
+	public void appendDone(long id) {
+		writer.execute(() -> {
+			try {
+				out.writeByte(DONE);
+				out.writeLong(id);
+				out.flush();
+				live.remove(id);
+				recorded();
+			} catch (IOException e) {
+				ServerLog.error("offer_spill_failed", "offer", id, "error", e.getMessage());
+			}
+		});
+	}
+
+	//Writes every record already appended, then closes the log.
+	public void close() throws IOException, InterruptedException {
+		writer.shutdown();
+		writer.awaitTermination(10, TimeUnit.SECONDS);
+		out.close();
+	}
+
+	//Counts an appended record and compacts the log once fewer than half of its records are offers still waiting.
+	private void recorded() throws IOException {
+		records++;
+		if (records >= COMPACT_MIN_RECORDS && records > 2 * live.size()) {
+			long now = System.currentTimeMillis();
+			live.values().removeIf(offer -> offer.isExpired(now));
+			rewrite();
+			ServerLog.debug("offer_log_compacted", "waiting", live.size());
+		}
+	}
+
+	//Writes the waiting offers to a temporary file, swaps it in and reopens it for appending.
+	//When the swap fails the old log, which still holds every waiting offer, is appended to as before.
+	private void rewrite() throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			for (LineupOffer offer : live.values()) {
+				writeOffer(compacted, offer);
+			}
+		}
+		if (out != null) {
+			out.close();
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			records = live.size();
+		} finally {
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)));
+		}
+	}
+
+	//Coordinates are stored in the same tenths of a pixel the binary protocol uses.
+	private static void writeOffer(DataOutputStream out, LineupOffer offer) throws IOException {
+		out.writeByte(OFFER);
+		out.writeLong(offer.getId());
+		out.writeUTF(offer.getFromCoach());
+		out.writeUTF(offer.getToCoach());
+		out.writeLong(offer.getExpiresAtMillis());
+		out.writeByte(offer.getLineup().size());
+		for (LineupEntry entry : offer.getLineup()) {
+			out.writeInt(entry.getPlayerNumber());
+			out.writeShort(WireProtocol.toFieldUnits(entry.getX()));
+			out.writeShort(WireProtocol.toFieldUnits(entry.getY()));
+		}
+	}
+
+	private static LineupOffer readOffer(DataInputStream in) throws IOException {
+		long id = in.readLong();
+		String fromCoach = in.readUTF();
+		String toCoach = in.readUTF();
+		long expiresAtMillis = in.readLong();
+		int count = in.readUnsignedByte();
+		List<LineupEntry> lineup = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int number = in.readInt();
+			double x = WireProtocol.fromFieldUnits(in.readShort());
+			double y = WireProtocol.fromFieldUnits(in.readShort());
+			lineup.add(new LineupEntry(number, x, y));
+		}
+		return new LineupOffer(id, fromCoach, toCoach, lineup, expiresAtMillis);
+	}
+}
@@ -0,0 +1,74 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One server message encoded for both wire protocols, or only the one its coach reads, shared by every coach it is sent to.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class OutboundMessage {
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+	private final ByteBuffer textPayload;
+	private final ByteBuffer binaryPayload;
+	private final String coalesceKey;
+
+	private OutboundMessage(ByteBuffer textPayload, ByteBuffer binaryPayload, String coalesceKey) {
+		this.textPayload = textPayload;
+		this.binaryPayload = binaryPayload;
+		this.coalesceKey = coalesceKey;
+	}
+
+	//Encodes a message from its protocol lines and its binary frame.
+	public static OutboundMessage of(String[] lines, WireProtocol.FrameWriter frame) {
+		return keyed(null, lines, frame);
+	}
+
+	//Encodes a message that may replace a queued message with the same key (see CoachOutbox.OverflowPolicy.COALESCE).
+	public static OutboundMessage keyed(String coalesceKey, String[] lines, WireProtocol.FrameWriter frame) {
+		return new OutboundMessage(ByteBuffer.wrap(encode(lines)), ByteBuffer.wrap(frame.toFrame()), coalesceKey);
+	}
+
+	//Encodes a message that is cached and sent many times, into read-only off-heap memory so writes skip a copy.
+	public static OutboundMessage preEncoded(String[] lines, WireProtocol.FrameWriter frame) {
+		return new OutboundMessage(direct(encode(lines)), direct(frame.toFrame()), null);
+	}
+
+	//Encodes a message only as text lines, for a reply to a coach known to read text or a message that only exists in the
+	//text protocol. A coach reading frames is sent nothing.
+	public static OutboundMessage textOnly(String... lines) {
+		return new OutboundMessage(ByteBuffer.wrap(encode(lines)), EMPTY, null);
+	}
+
+	//Encodes a message only as a binary frame, for a reply to a coach known to read frames. A coach reading text is sent nothing.
+	public static OutboundMessage binaryOnly(WireProtocol.FrameWriter frame) {
+		return new OutboundMessage(EMPTY, ByteBuffer.wrap(frame.toFrame()), null);
+	}
+
+	//Wraps bytes already encoded for the coach's current protocol, used to resend what a coach missed.
+	public static OutboundMessage raw(ByteBuffer payload) {
+		return new OutboundMessage(payload, payload, null);
+	}
+
+	//Joins the lines with '\n' and encodes them as UTF-8.
+	private static byte[] encode(String[] lines) {
+		StringBuilder message = new StringBuilder();
+		for (String line : lines) {
+			message.append(line).append('\n');
+		}
+		return message.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	//Copies bytes into a read-only direct buffer.
+	private static ByteBuffer direct(byte[] bytes) {
+		ByteBuffer payload = ByteBuffer.allocateDirect(bytes.length);
+		payload.put(bytes).flip();
+		return payload.asReadOnlyBuffer();
+	}
+
+	//Returns a view of the encoded bytes with its own position, so each coach can write it independently.
+	public ByteBuffer payload(boolean binary) {
+		return (binary ? binaryPayload : textPayload).duplicate();
+	}
+
+	//Getter for coalesce key, null when the message must never be merged.
+	public String getCoalesceKey() {
+		return coalesceKey;
+	}
+}
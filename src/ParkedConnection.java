@@ -0,0 +1,46 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Stands in for the connection of a session whose coach dropped, queueing what it is sent until the coach resumes or the session expires.
+
+public class ParkedConnection implements CoachConnection {
+	private final CoachOutbox outbox;
+
+	public ParkedConnection(CoachOutbox outbox) {
+		this.outbox = outbox;
+	}
+
+	@Override
+	public void send(OutboundMessage message) {
+		outbox.add(message);
+	}
+
+	//Broadcasts beyond the outbox capacity follow its overflow policy, a parked coach is never disconnected twice.
+	@Override
+	public void deliver(OutboundMessage message) {
+		outbox.offer(message);
+	}
+
+	@Override
+	public void useBinaryOutput() {
+		outbox.useBinary();
+	}
+
+	@Override
+	public void close() {
+		outbox.close();
+	}
+
+	//There is no socket left to drop.
+	@Override
+	public void abort() {
+		outbox.close();
+	}
+
+	@Override
+	public CoachOutbox getOutbox() {
+		return outbox;
+	}
+
+	@Override
+	public void joinedRoom(LineupRoom room) {
+	}
+}
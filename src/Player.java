@@ -1,19 +1,16 @@
 //Author: Nicolas Diaz-Aguilar
 //Contains each player's associated information and methods.
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
-import javafx.scene.paint.Color;
-
 public class Player {
 	private int number;
 	private String name;
+	//Interned where rosters are read (PlayerXMLReader, ServerChannel), so a large roster shares one string per code
 	private String position;
-	private Color playerColor = Color.WHITE;
-	private double x;
-	private double y;
-	private Map<String, Boolean> coachPlayerOnFieldStatus = new HashMap<>();
+	private float x;
+	private float y;
+	//Whether this client's coach has the player on the field
+	private boolean onField;
 
 	//Creates a player instance, sets position values to 0.0 by default
 	public Player(int number, String name, String position) {
@@ -48,20 +45,12 @@ public class Player {
 		this.position = position;
 	}
 
-	public Color getPlayerColor() {
-		return playerColor;
-	}
-
-	public void setPlayerColor(Color color) {
-		this.playerColor = color;
-	}
-
 	public double getX() {
 		return x;
 	}
 
 	public void setX(double xPosition) {
-		this.x = xPosition;
+		this.x = (float) xPosition;
 	}
 
 	public double getY() {
@@ -69,21 +58,21 @@ public class Player {
 	}
 
 	public void setY(double yPosition) {
-		this.y = yPosition;
+		this.y = (float) yPosition;
 	}
 
-	public boolean isOnField(String coachName) {
-		return coachPlayerOnFieldStatus.getOrDefault(coachName, false);
+	public boolean isOnField() {
+		return onField;
 	}
 
-	public void setOnField(boolean status, String coachName) {
-		coachPlayerOnFieldStatus.put(coachName, status);
+	public void setOnField(boolean status) {
+		this.onField = status;
 	}
 
 	//Moves player's coordinates
 	public void moveBy(double dx, double dy) {
-		x += dx;
-		y += dy;
+		x += (float) dx;
+		y += (float) dy;
 	}
 
 	//Checks if a point if within each player's circle
@@ -91,7 +80,9 @@ public class Player {
 		double radius = 25;
 		double centerX = x + radius;
 		double centerY = y + radius;
-		return Math.pow(pointX - centerX, 2) + Math.pow(pointY - centerY, 2) <= Math.pow(radius, 2);
+		double dx = pointX - centerX;
+		double dy = pointY - centerY;
+		return dx * dx + dy * dy <= radius * radius;
 	}
 
 	@Override
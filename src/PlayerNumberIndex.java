@@ -0,0 +1,73 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Open-addressing map from player number to a slot (an index into an array or list), without boxing either side.
+import java.util.Arrays;
+
+public class PlayerNumberIndex {
+	private int[] numbers;
+	private int[] slots;
+	private int mask;
+	private int size;
+
+	public PlayerNumberIndex(int expectedSize) {
+		allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+	}
+
+	//Returns the slot stored for the number, or -1.
+	public int get(int number) {
+		return slots[find(number)];
+	}
+
+	//Stores the slot for the number, replacing any earlier one. Slots must not be negative.
+	public void put(int number, int slot) {
+		int at = find(number);
+		if (slots[at] < 0) {
+			if ((size + 1) * 2 > slots.length) {
+				grow();
+				at = find(number);
+			}
+			numbers[at] = number;
+			size++;
+		}
+		slots[at] = slot;
+	}
+
+	//There is no single remove: after taking entries out of the indexed list, clear and refill the index.
+	public void clear() {
+		Arrays.fill(slots, -1);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	//Finds the entry holding the number, or the empty entry where it belongs.
+	private int find(int number) {
+		int hash = number * 0x9E3779B9;
+		int at = (hash ^ hash >>> 16) & mask;
+		while (slots[at] >= 0 && numbers[at] != number) {
+			at = (at + 1) & mask;
+		}
+		return at;
+	}
+
+	private void grow() {
+		int[] oldNumbers = numbers;
+		int[] oldSlots = slots;
+		allocate(oldSlots.length * 2);
+		for (int i = 0; i < oldSlots.length; i++) {
+			if (oldSlots[i] >= 0) {
+				int at = find(oldNumbers[i]);
+				numbers[at] = oldNumbers[i];
+				slots[at] = oldSlots[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		numbers = new int[capacity];
+		slots = new int[capacity];
+		Arrays.fill(slots, -1);
+		mask = capacity - 1;
+	}
+}
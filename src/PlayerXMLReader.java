@@ -1,59 +1,135 @@
 //Author: Vicente Lyon
 //Reads SoccerPlayers.xml
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class PlayerXMLReader {
-	public static HashMap<String, Player> readFile(String filename) {
-		HashMap<String, Player> players = new HashMap<>();
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-
+	//Streams the file and hands each player to the sink as soon as its </PLAYER> is read, so memory stays constant
+	//however large the roster is. Malformed entries are reported and skipped. Returns how many players were read.
+	public static int read(String filename, Consumer<Player> sink) {
+		int[] loaded = {0};
 		try {
-			DocumentBuilder db = dbf.newDocumentBuilder();
-			File file = new File(filename);
-			if (!file.exists()) {
-				System.err.println("XML file not found: " + filename);
-				return players;
-			}
+			parse(filename, player -> {
+				sink.accept(player);
+				loaded[0]++;
+			});
+		} catch (IOException | XMLStreamException e) {
+			//Not well-formed past this point, keep what was read before it
+			ServerLog.error("roster_read_failed", "file", filename, "error", e.getMessage());
+		}
+		return loaded[0];
+	}
+
+	//Reads every player, failing instead of returning a partial roster when the file is missing or not well-formed
+	//(for example while an editor is still writing it).
+	public static List<Player> readAll(String filename) throws IOException, XMLStreamException {
+		List<Player> players = new ArrayList<>();
+		parse(filename, players::add);
+		return players;
+	}
+
+	//Streams the players of the file into the sink, skipping malformed entries.
+	private static void parse(String filename, Consumer<Player> sink) throws IOException, XMLStreamException {
+		File file = new File(filename);
+		if (!file.exists()) {
+			throw new FileNotFoundException("XML file not found: " + filename);
+		}
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
 
-			Document doc = db.parse(file);
-			NodeList list = doc.getElementsByTagName("PLAYER");
-
-			for (int temp = 0; temp < list.getLength(); temp++) {
-				Node node = list.item(temp);
-				if (node.getNodeType() == Node.ELEMENT_NODE) {
-					Element element = (Element) node;
-					String NUMBER = element.getElementsByTagName("NUMBER").item(0).getTextContent().trim();
-					String NAME = element.getElementsByTagName("NAME").item(0).getTextContent().trim();
-					String POSITION = element.getElementsByTagName("POSITION").item(0).getTextContent().trim();
-
-					try {
-						int number = Integer.parseInt(NUMBER);
-						Player player = new Player(number, NAME, POSITION);
-						players.put(NUMBER, player);
-					} catch (NumberFormatException e) {
-						System.err.println("Invalid player number format for player: " + NAME);
+		int loaded = 0;
+		int skipped = 0;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			StringBuilder text = new StringBuilder();
+			String field = null;
+			String number = null;
+			String name = null;
+			String position = null;
+			int playerLine = 0;
+			boolean inPlayer = false;
+
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String startTag = reader.getLocalName();
+					if (startTag.equals("PLAYER")) {
+						inPlayer = true;
+						number = name = position = null;
+						playerLine = reader.getLocation().getLineNumber();
+					} else if (inPlayer && (startTag.equals("NUMBER") || startTag.equals("NAME") || startTag.equals("POSITION"))) {
+						field = startTag;
+						text.setLength(0);
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					if (field != null) {
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					String endTag = reader.getLocalName();
+					if (endTag.equals(field)) {
+						String value = text.toString().trim();
+						if (field.equals("NUMBER")) {
+							number = value;
+						} else if (field.equals("NAME")) {
+							name = value;
+						} else {
+							position = value;
+						}
+						field = null;
+					} else if (endTag.equals("PLAYER") && inPlayer) {
+						inPlayer = false;
+						Player player = toPlayer(filename, playerLine, number, name, position);
+						if (player != null) {
+							sink.accept(player);
+							loaded++;
+						} else {
+							skipped++;
+						}
 					}
-					System.out.println("------- Found Player -------");
-					System.out.println("Number: " + NUMBER);
-					System.out.println("Name: " + NAME);
-					System.out.println("Position: " + POSITION);
+					break;
 				}
 			}
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			e.printStackTrace();
+			reader.close();
 		}
-		return players;
+
+		ServerLog.info("roster_loaded", "file", filename, "players", loaded, "skipped", skipped);
+	}
+
+	//Builds a player from its fields, or reports why the entry is malformed and returns null.
+	private static Player toPlayer(String filename, int line, String number, String name, String position) {
+		String problem = null;
+		if (number == null || number.isEmpty()) {
+			problem = "missing NUMBER";
+		} else if (name == null || name.isEmpty()) {
+			problem = "missing NAME";
+		} else if (position == null || position.isEmpty()) {
+			problem = "missing POSITION";
+		} else {
+			try {
+				return new Player(Integer.parseInt(number), name, position.intern());
+			} catch (NumberFormatException e) {
+				problem = "invalid NUMBER '" + number + "'";
+			}
+		}
+		ServerLog.warn("player_skipped", "file", filename, "line", line, "reason", problem);
+		return null;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
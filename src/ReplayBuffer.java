@@ -0,0 +1,71 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//The most recent bytes sent to one coach, so a coach whose connection drops can pick up right after the last byte it read.
+//Payloads are shared and never modified, so they are kept by reference instead of being copied.
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ReplayBuffer {
+	private static volatile int defaultCapacity = 256 * 1024;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ArrayDeque<ByteBuffer> payloads = new ArrayDeque<>();
+	private final int capacity;
+	//Stream offsets of the first kept byte and of the byte after the last one sent
+	private long start;
+	private long end;
+
+	public ReplayBuffer() {
+		this.capacity = defaultCapacity;
+	}
+
+	//Sets how many bytes buffers created afterwards keep.
+	public static void configure(int capacity) {
+		defaultCapacity = capacity;
+	}
+
+	//Records a payload about to be written, the oldest payloads are forgotten once more than capacity bytes are kept.
+	public void record(ByteBuffer payload) {
+		lock.lock();
+		try {
+			payloads.add(payload.duplicate());
+			end += payload.remaining();
+			while (end - start > capacity && payloads.size() > 1) {
+				start += payloads.poll().remaining();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Returns everything sent from a stream offset on and forgets it, since it will be recorded again when resent.
+	//Null when that offset is no longer kept (or was never sent), the coach then has to start over.
+	public List<ByteBuffer> rewindTo(long offset) {
+		lock.lock();
+		try {
+			if (offset < start || offset > end) {
+				return null;
+			}
+			List<ByteBuffer> missed = new ArrayList<>();
+			long position = end;
+			while (position > offset) {
+				ByteBuffer payload = payloads.pollLast();
+				position -= payload.remaining();
+				if (position < offset) {
+					//Keep the part the coach already read, resend the rest
+					ByteBuffer read = payload.duplicate();
+					read.limit(read.position() + (int) (offset - position));
+					payloads.add(read);
+					payload.position(read.limit());
+					position = offset;
+				}
+				missed.add(0, payload);
+			}
+			end = offset;
+			return missed;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Sessions by the token issued at login. A session whose connection dropped is parked for a grace period so its coach can
+//resume it. A live session is kept too, since its coach may resume before the server notices the old connection is gone.
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class ResumableSessions {
+	private static volatile long graceMillis = 30_000;
+	private final ConcurrentHashMap<String, CoachSession> live = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CoachSession> parked = new ConcurrentHashMap<>();
+	private final SecureRandom random = new SecureRandom();
+	private final TimerWheel timers;
+
+	public ResumableSessions(TimerWheel timers) {
+		this.timers = timers;
+	}
+
+	//Sets how long a dropped session waits for its coach to come back.
+	public static void configure(long graceSeconds) {
+		graceMillis = TimeUnit.SECONDS.toMillis(graceSeconds);
+	}
+
+	//Returns a new unguessable session token.
+	public String newToken() {
+		byte[] token = new byte[16];
+		random.nextBytes(token);
+		return HexFormat.of().formatHex(token);
+	}
+
+	//Registers the session holding a token while its connection is open.
+	public void add(String token, CoachSession session) {
+		live.put(token, session);
+	}
+
+	//Forgets a session that ended for good, unless the token already belongs to the session that resumed it.
+	public void remove(String token, CoachSession session) {
+		live.remove(token, session);
+	}
+
+	//Returns the session holding a token on an open connection, or null.
+	public CoachSession live(String token) {
+		return live.get(token);
+	}
+
+	//Keeps a dropped session, runs onExpiry if its coach has not resumed it within the grace period.
+	public void park(String token, CoachSession session, Runnable onExpiry) {
+		live.remove(token, session);
+		parked.put(token, session);
+		timers.schedule(() -> {
+			if (parked.remove(token, session)) {
+				onExpiry.run();
+			}
+		}, graceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//How many sessions are waiting for their coach to come back.
+	public int size() {
+		return parked.size();
+	}
+
+	//Takes back a parked session, null when the token is unknown or the session already expired.
+	public CoachSession claim(String token) {
+		return parked.remove(token);
+	}
+}
@@ -0,0 +1,63 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Bounded lock-free queue for many producers and one consumer. A producer claims a slot with one compare-and-set and
+//never waits: when the ring is full, offer fails at once. Each slot's sequence number says whose turn it is.
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class RingBuffer<T> {
+	private final Object[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	//Only touched by the consumer
+	private long head;
+
+	//Capacity is rounded up to a power of two.
+	public RingBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Object[size];
+		sequences = new AtomicLongArray(size);
+		mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	//Adds an element from any thread, false when the ring is full.
+	public boolean offer(T element) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long lag = sequences.get(index) - position;
+			if (lag == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots[index] = element;
+					//Publishes the element to the consumer
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (lag < 0) {
+				//The consumer has not freed this slot yet
+				return false;
+			}
+		}
+	}
+
+	//Takes the oldest element, null when there is none. Only one thread may call it.
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+		T element = (T) slots[index];
+		slots[index] = null;
+		//Hands the slot back to producers for the next lap
+		sequences.set(index, head + slots.length);
+		head++;
+		return element;
+	}
+}
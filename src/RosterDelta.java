@@ -0,0 +1,46 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One versioned change to the shared roster, as pushed to coaches in ROSTER_DELTA messages.
+
+public class RosterDelta {
+	//What happened to the player: added or edited (sent whole), or taken out of the roster.
+	public enum Op { PUT, REMOVE }
+
+	private final int playerNumber;
+	private final Op op;
+	private final Player player;
+	private final long version;
+
+	private RosterDelta(int playerNumber, Op op, Player player, long version) {
+		this.playerNumber = playerNumber;
+		this.op = op;
+		this.player = player;
+		this.version = version;
+	}
+
+	public static RosterDelta put(Player player, long version) {
+		return new RosterDelta(player.getNumber(), Op.PUT, player, version);
+	}
+
+	public static RosterDelta remove(int playerNumber, long version) {
+		return new RosterDelta(playerNumber, Op.REMOVE, null, version);
+	}
+
+	//Getters.
+
+	public int getPlayerNumber() {
+		return playerNumber;
+	}
+
+	public Op getOp() {
+		return op;
+	}
+
+	//Null for a REMOVE.
+	public Player getPlayer() {
+		return player;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,95 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Versions every change to a room's roster and pushes the changes made during a short window as a single ROSTER_DELTA message.
+//Only the roster all coaches share goes through here, which players are on a coach's field is that coach's business.
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class RosterDeltaBatcher {
+	private static volatile long windowMillis = 50;
+	private final Consumer<OutboundMessage> broadcaster;
+	//One thread flushes the batchers of every room
+	private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "roster-delta-flusher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ReentrantLock lock = new ReentrantLock();
+	private List<RosterDelta> pending = new ArrayList<>();
+	private long version;
+	private OutboundMessage versionMessage;
+
+	public RosterDeltaBatcher(Consumer<OutboundMessage> broadcaster) {
+		this.broadcaster = broadcaster;
+	}
+
+	//Sets how long changes are collected before they are pushed.
+	public static void configure(long windowMillis) {
+		RosterDeltaBatcher.windowMillis = windowMillis;
+	}
+
+	//Getter for the version of the latest change.
+	public long getVersion() {
+		lock.lock();
+		try {
+			return version;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Returns the ROSTER_VERSION message for the current version, encoded again only after a change.
+	public OutboundMessage getVersionMessage() {
+		lock.lock();
+		try {
+			if (versionMessage == null) {
+				versionMessage = ServerMessages.rosterVersion(version);
+			}
+			return versionMessage;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Records players added or edited and numbers of players taken out, the first change of a window schedules the push.
+	//Called after the new roster is published, so a coach who fetched it meanwhile skips these versions.
+	public void record(List<Player> updated, List<Integer> removed) {
+		boolean firstOfWindow;
+		lock.lock();
+		try {
+			firstOfWindow = pending.isEmpty();
+			for (Player player : updated) {
+				pending.add(RosterDelta.put(player, ++version));
+			}
+			for (int number : removed) {
+				pending.add(RosterDelta.remove(number, ++version));
+			}
+			versionMessage = null;
+		} finally {
+			lock.unlock();
+		}
+		if (firstOfWindow) {
+			flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	//Pushes every change recorded since the last flush, oldest first.
+	private void flush() {
+		List<RosterDelta> deltas;
+		lock.lock();
+		try {
+			deltas = pending;
+			pending = new ArrayList<>();
+		} finally {
+			lock.unlock();
+		}
+		if (deltas.isEmpty()) {
+			return;
+		}
+		broadcaster.accept(ServerMessages.rosterDelta(deltas));
+	}
+}
@@ -0,0 +1,161 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Watches the roster files and, whenever one is saved, publishes its new roster and pushes only the players that changed.
+//One thread and one watch service serve the shared roster and the rosters of every open room.
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.xml.stream.XMLStreamException;
+
+public class RosterReloader implements Runnable {
+	//Editors save in several writes, wait for them to settle before parsing
+	private static final long SETTLE_MILLIS = 250;
+	//Rosters by the absolute path of their file
+	private final Map<Path, Watched> watched = new ConcurrentHashMap<>();
+	//Directories of the watched files, registered with the watch service once it exists and never unregistered
+	private final Set<Path> directories = new HashSet<>();
+	private WatchService watcher;
+
+	private static final class Watched {
+		private final RosterStore roster;
+		//Receives the players added or edited and the numbers of players taken out, once the new roster is published
+		private final BiConsumer<List<Player>, List<Integer>> changes;
+
+		private Watched(RosterStore roster, BiConsumer<List<Player>, List<Integer>> changes) {
+			this.roster = roster;
+			this.changes = changes;
+		}
+	}
+
+	//Reloads a roster whenever its file is saved, until it is unwatched.
+	public void watch(Path file, RosterStore roster, BiConsumer<List<Player>, List<Integer>> changes) {
+		Path absolute = file.toAbsolutePath();
+		watched.put(absolute, new Watched(roster, changes));
+		watchDirectory(absolute.getParent());
+	}
+
+	//Stops reloading a roster, its directory stays watched for the other files in it.
+	public void unwatch(RosterStore roster) {
+		watched.values().removeIf(entry -> entry.roster == roster);
+	}
+
+	//Starts watching on a daemon thread.
+	public synchronized void start() {
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) {
+			ServerLog.error("roster_watch_stopped", "error", e.getMessage());
+			return;
+		}
+		for (Path directory : directories) {
+			register(directory);
+		}
+		Thread thread = new Thread(this, "roster-reloader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private synchronized void watchDirectory(Path directory) {
+		if (directories.add(directory) && watcher != null) {
+			register(directory);
+		}
+	}
+
+	//Directories are watched, not files, and replacing a file on save shows up as a create.
+	private void register(Path directory) {
+		try {
+			directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			ServerLog.error("roster_watch_failed", "directory", directory, "error", e.getMessage());
+		}
+	}
+
+	@Override
+	public void run() {
+		try (WatchService service = watcher) {
+			while (true) {
+				Set<Path> touched = new HashSet<>();
+				collectTouched(service.take(), touched);
+				if (!touched.isEmpty()) {
+					Thread.sleep(SETTLE_MILLIS);
+					WatchKey more;
+					while ((more = service.poll()) != null) {
+						collectTouched(more, touched);
+					}
+					for (Path file : touched) {
+						reload(file);
+					}
+				}
+			}
+		} catch (IOException e) {
+			ServerLog.error("roster_watch_stopped", "error", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//Consumes the key's events and collects the watched roster files among them.
+	private void collectTouched(WatchKey key, Set<Path> touched) {
+		Path directory = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+				Path file = directory.resolve((Path) event.context());
+				if (watched.containsKey(file)) {
+					touched.add(file);
+				}
+			}
+		}
+		key.reset();
+	}
+
+	//Parses the file off the session threads, swaps in the new snapshot and pushes the difference.
+	private void reload(Path rosterFile) {
+		Watched entry = watched.get(rosterFile);
+		if (entry == null) {
+			//Its room closed meanwhile
+			return;
+		}
+		RosterStore roster = entry.roster;
+		List<Player> players;
+		try {
+			players = PlayerXMLReader.readAll(rosterFile.toString());
+		} catch (IOException | XMLStreamException e) {
+			//Half-written or broken file, keep serving the current roster until the next save
+			ServerLog.warn("roster_not_reloaded", "error", e.getMessage());
+			return;
+		}
+
+		RosterStore.Snapshot before = roster.snapshot();
+		roster.publish(players);
+		RosterStore.Snapshot after = roster.snapshot();
+
+		List<Player> updated = new ArrayList<>();
+		for (Player player : after.getPlayers()) {
+			Player old = before.find(player.getNumber());
+			if (old == null || !old.getName().equals(player.getName()) || !old.getPosition().equals(player.getPosition())) {
+				updated.add(player);
+			}
+		}
+		List<Integer> removed = new ArrayList<>();
+		for (Player player : before.getPlayers()) {
+			if (after.indexOf(player.getNumber()) < 0) {
+				removed.add(player.getNumber());
+			}
+		}
+
+		if (!updated.isEmpty() || !removed.isEmpty()) {
+			ServerLog.info("roster_reloaded", "file", rosterFile.getFileName(), "changed", updated.size(), "removed", removed.size());
+			entry.changes.accept(updated, removed);
+		}
+	}
+}
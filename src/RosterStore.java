@@ -0,0 +1,164 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//The roster shared by every coach session, published as an immutable snapshot that sessions read without locking.
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+
+public class RosterStore {
+	private volatile Snapshot current = new LoadedSnapshot(Collections.emptyList());
+	private Path sourceFile;
+	private Path compiledFile;
+
+	//One version of the roster, never modified after it is published.
+	public interface Snapshot {
+		//Returns the player with this number, or null.
+		Player find(int number);
+
+		//Returns where the player with this number is kept for nameAt and positionAt, or -1 when there is none.
+		//Unlike find it builds nothing, for paths that only need to know a player exists.
+		int indexOf(int number);
+
+		String nameAt(int index);
+
+		String positionAt(int index);
+
+		//Players in the order of the roster file, whether it was parsed or mapped.
+		List<Player> getPlayers();
+
+		//GET_PLAYERS reply for this roster.
+		OutboundMessage getPlayerListMessage();
+	}
+
+	//Snapshot of players parsed from the XML, held as parallel arrays rather than one object per player.
+	private static final class LoadedSnapshot implements Snapshot {
+		private final int[] numbers;
+		private final String[] names;
+		private final String[] positions;
+		private final int count;
+		private final PlayerNumberIndex index;
+		//Builds players from the arrays on access
+		private final List<Player> players = new AbstractList<Player>() {
+			@Override
+			public Player get(int slot) {
+				if (slot < 0 || slot >= count) {
+					throw new IndexOutOfBoundsException(slot);
+				}
+				return playerAt(slot);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+		//GET_PLAYERS reply for this roster, encoded once
+		private final OutboundMessage playerListMessage;
+
+		private LoadedSnapshot(List<Player> loadedPlayers) {
+			numbers = new int[loadedPlayers.size()];
+			names = new String[loadedPlayers.size()];
+			positions = new String[loadedPlayers.size()];
+			index = new PlayerNumberIndex(loadedPlayers.size());
+
+			//File order is kept, a number that appears again replaces the earlier player in place
+			int filled = 0;
+			for (Player player : loadedPlayers) {
+				int slot = index.get(player.getNumber());
+				if (slot < 0) {
+					slot = filled++;
+					index.put(player.getNumber(), slot);
+					numbers[slot] = player.getNumber();
+				}
+				names[slot] = player.getName();
+				positions[slot] = player.getPosition();
+			}
+			count = filled;
+			playerListMessage = ServerMessages.playerList(players);
+		}
+
+		@Override
+		public Player find(int number) {
+			int slot = index.get(number);
+			return slot < 0 ? null : playerAt(slot);
+		}
+
+		@Override
+		public int indexOf(int number) {
+			return index.get(number);
+		}
+
+		@Override
+		public String nameAt(int slot) {
+			return names[slot];
+		}
+
+		@Override
+		public String positionAt(int slot) {
+			return positions[slot];
+		}
+
+		//Getter for players, in file order.
+		@Override
+		public List<Player> getPlayers() {
+			return players;
+		}
+
+		@Override
+		public OutboundMessage getPlayerListMessage() {
+			return playerListMessage;
+		}
+
+		private Player playerAt(int slot) {
+			return new Player(numbers[slot], names[slot], positions[slot]);
+		}
+	}
+
+	//Loads the roster once at server start before coaches connect. A compiled roster that is up to date with the XML
+	//is only mapped, so startup time does not grow with the roster. Otherwise the XML is parsed and compiled for next time.
+	public void load(String filename) {
+		sourceFile = Path.of(filename);
+		compiledFile = CompiledRoster.pathFor(sourceFile);
+		CompiledRoster compiled = CompiledRoster.open(compiledFile, sourceFile);
+		if (compiled != null) {
+			current = compiled;
+			ServerLog.info("roster_mapped", "file", compiledFile, "players", compiled.getPlayers().size());
+			//Encode the GET_PLAYERS reply in the background so the first coach does not wait for it
+			Thread warmUp = new Thread(compiled::getPlayerListMessage, "roster-warm-up");
+			warmUp.setDaemon(true);
+			warmUp.start();
+			return;
+		}
+
+		try {
+			publish(PlayerXMLReader.readAll(filename));
+		} catch (IOException | XMLStreamException e) {
+			//Serve what can be read, but never compile a partial roster
+			List<Player> players = new ArrayList<>();
+			PlayerXMLReader.read(filename, players::add);
+			current = new LoadedSnapshot(players);
+		}
+	}
+
+	//Replaces the roster, sessions pick up the new snapshot on their next read. The compiled file is rewritten to match.
+	public void publish(List<Player> players) {
+		Snapshot snapshot = new LoadedSnapshot(players);
+		current = snapshot;
+		if (compiledFile != null && Files.exists(sourceFile)) {
+			try {
+				CompiledRoster.write(compiledFile, sourceFile, snapshot.getPlayers());
+			} catch (IOException e) {
+				ServerLog.warn("compiled_roster_not_written", "file", compiledFile, "error", e.getMessage());
+			}
+		}
+	}
+
+	//Returns the current roster, a caller that needs several consistent reads should keep the snapshot.
+	public Snapshot snapshot() {
+		return current;
+	}
+}
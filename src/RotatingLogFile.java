@@ -0,0 +1,86 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Log file that rolls over at a size limit: server.log becomes server.log.1, server.log.1 becomes server.log.2 and so on,
+//keeping a fixed number of old files. Only written by the ServerLog thread.
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class RotatingLogFile {
+	private final Path path;
+	private final long maxBytes;
+	private final int keptFiles;
+	private BufferedWriter out;
+	//Bytes in the current file, as encoded in UTF-8
+	private long written;
+
+	public RotatingLogFile(Path path, long maxBytes, int keptFiles) throws IOException {
+		this.path = path;
+		this.maxBytes = maxBytes;
+		this.keptFiles = keptFiles;
+		open();
+	}
+
+	//Appends one line, rolling the files over first when it would pass the size limit.
+	public void write(String line) throws IOException {
+		int length = utf8Length(line) + 1;
+		if (written > 0 && written + length > maxBytes) {
+			rollOver();
+		}
+		out.write(line);
+		out.write('\n');
+		written += length;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	//Appends to an existing file, counting what it already holds.
+	private void open() throws IOException {
+		written = Files.exists(path) ? Files.size(path) : 0;
+		out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private void rollOver() throws IOException {
+		out.close();
+		Files.deleteIfExists(numbered(keptFiles));
+		for (int i = keptFiles - 1; i >= 1; i--) {
+			if (Files.exists(numbered(i))) {
+				Files.move(numbered(i), numbered(i + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		if (keptFiles > 0) {
+			Files.move(path, numbered(1), StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			Files.delete(path);
+		}
+		open();
+	}
+
+	//Length of the line once encoded, without encoding it: one byte per ASCII character, two up to U+07FF,
+	//three for the rest of the BMP and four for a surrogate pair.
+	private static int utf8Length(String line) {
+		int length = line.length();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c >= 0x800) {
+				length += Character.isSurrogate(c) ? 1 : 2;
+			} else if (c >= 0x80) {
+				length++;
+			}
+		}
+		return length;
+	}
+
+	private Path numbered(int index) {
+		return path.resolveSibling(path.getFileName() + "." + index);
+	}
+}
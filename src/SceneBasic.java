@@ -1,6 +1,5 @@
 //Author: Vicente Lyon
 //Basic scene class serves as a template for GUI scenes.
-import java.io.PrintWriter;
 import java.net.Socket;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -36,9 +35,7 @@ public class SceneBasic {
 			System.out.println("Disconnecting...");
 			Socket connection = SceneManager.getSocket();
 			if (connection != null) {
-				PrintWriter outgoing = new PrintWriter(connection.getOutputStream());
-				outgoing.println("QUIT");
-				outgoing.flush();
+				SceneManager.getServerChannel().quit();
 				SceneManager.setSocket(null);
 			}
 			SceneManager.setScene(SceneManager.SceneType.login);
@@ -1,9 +1,6 @@
 //Author: Vicente Lyon
 //Manages all of the scenes that are shown in the Soccer Lineup Builder App.
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
 import java.util.HashMap;
 
@@ -14,8 +11,7 @@ public class SceneManager {
 	private static HashMap<SceneType, SceneBasic> scenes = new HashMap<>();
 	private static Socket connection;
 	private static Stage stage;
-	private static BufferedReader incoming;
-	private static PrintWriter outgoing;
+	private static ServerChannel serverChannel;
 	private static String coachName;
 
 	public SceneManager() {
@@ -27,24 +23,23 @@ public class SceneManager {
 	public static void setSocket(Socket setConnection) throws IOException {
 		connection = setConnection;
 		if (connection != null) {
-			incoming = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-			outgoing = new PrintWriter(connection.getOutputStream(), true);
+			serverChannel = new ServerChannel(connection);
 		}
 	}
 
-	public static BufferedReader getIncoming() {
-		return incoming;
+	//Replaces a dropped socket, the ServerChannel carries on over the new one.
+	public static void replaceSocket(Socket setConnection) {
+		connection = setConnection;
 	}
 
-	public static PrintWriter getOutgoing() {
-		return outgoing;
+	public static ServerChannel getServerChannel() {
+		return serverChannel;
 	}
 
 	public static Socket getSocket() {
 		if (connection != null && connection.isClosed()) {
 			connection = null;
-			incoming = null;
-			outgoing = null;
+			serverChannel = null;
 		}
 		return connection;
 	}
@@ -104,9 +99,8 @@ public class SceneManager {
 	//Sets streams to null.
 	public static void cleanup() {
 		try {
-			if (outgoing != null) {
-				outgoing.println("QUIT");
-				outgoing.flush();
+			if (serverChannel != null) {
+				serverChannel.quit();
 			}
 			if (connection != null) {
 				connection.close();
@@ -115,8 +109,7 @@ public class SceneManager {
 			e.printStackTrace();
 		} finally {
 			connection = null;
-			incoming = null;
-			outgoing = null;
+			serverChannel = null;
 
 			SceneType[] types = SceneType.values();
 			for (SceneType type : types) {
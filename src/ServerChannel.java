@@ -0,0 +1,509 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Client side of the connection to LineupServer - Sends commands and decodes server messages in the text or binary protocol.
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ServerChannel {
+	//Replaced when the connection is resumed on a new socket (see resume)
+	private CountingInputStream counted;
+	private DataInputStream incoming;
+	private OutputStream outgoing;
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private volatile boolean binaryOutput;
+	private boolean binaryInput;
+	private byte[] lineBytes = new byte[256];
+	//Issued by the server at login, null until then and after a failed resume
+	private volatile String sessionToken;
+	//Bytes of the session's stream read up to the end of the last complete message, only used by the reading thread
+	private long acknowledged;
+	//Room joined at every login, null for the server's default room
+	private volatile String room;
+
+	public ServerChannel(Socket socket) throws IOException {
+		attach(socket);
+	}
+
+	//Reads and writes through a socket, the byte count starts over with it.
+	private void attach(Socket socket) throws IOException {
+		counted = new CountingInputStream(new BufferedInputStream(socket.getInputStream()));
+		incoming = new DataInputStream(counted);
+		outgoing = new BufferedOutputStream(socket.getOutputStream());
+	}
+
+	//Counts the bytes read through it, so the client knows where to resume the server's stream.
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	//Continues the session on a new socket after the connection dropped, called by the reading thread.
+	//The server resends everything after the last complete message read. Returns false when the session is gone,
+	//the channel is then back to a fresh text connection and the caller logs in again.
+	public boolean resume(Socket socket) throws IOException {
+		String token = sessionToken;
+		writeLock.lock();
+		try {
+			attach(socket);
+			if (token != null) {
+				outgoing.write((WireProtocol.RESUME_REQUEST + " " + token + " " + acknowledged + "\n").getBytes(StandardCharsets.UTF_8));
+				outgoing.flush();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		String reply = token == null ? null : readRequiredLine();
+		if (reply != null && reply.startsWith(WireProtocol.RESUMED)) {
+			//The reply is the first byte past the acknowledged ones, the protocols in use carry on
+			counted.count += acknowledged;
+			acknowledged = counted.count;
+			if (binaryOutput && !reply.endsWith(" " + WireProtocol.BINARY_START)) {
+				//Our switch to frames never reached the server
+				writeLock.lock();
+				try {
+					binaryOutput = false;
+					writeLines(WireProtocol.BINARY_START);
+					binaryOutput = true;
+				} finally {
+					writeLock.unlock();
+				}
+			}
+			return true;
+		}
+		sessionToken = null;
+		binaryInput = false;
+		binaryOutput = false;
+		acknowledged = counted.count;
+		return false;
+	}
+
+	//Sets the room joined by the next login, it must pass WireProtocol.isRoomName.
+	public void setRoom(String room) {
+		this.room = room;
+	}
+
+	//Logs in and, unless run with -Dlineup.textProtocol=true, asks for the binary protocol. The server keeps text for clients that never ask.
+	public void open(String coachName) {
+		login(coachName);
+		if (!Boolean.getBoolean("lineup.textProtocol")) {
+			requestBinaryProtocol();
+		}
+	}
+
+	//Commands.
+
+	public void login(String coachName) {
+		String joining = room;
+		if (joining != null) {
+			writeLines(WireProtocol.TEXT_V2_REQUEST, WireProtocol.JOIN_ROOM + " " + joining, "Coach name:", coachName);
+		} else {
+			writeLines(WireProtocol.TEXT_V2_REQUEST, "Coach name:", coachName);
+		}
+	}
+
+	//Asks for the binary protocol, the switch happens when the server accepts (see readMessage).
+	public void requestBinaryProtocol() {
+		writeLines(WireProtocol.BINARY_REQUEST);
+	}
+
+	public void getPlayers() {
+		sendCommand(new String[] {"GET_PLAYERS"}, new WireProtocol.FrameWriter(WireProtocol.GET_PLAYERS));
+	}
+
+	public void addPlayer(int number) {
+		sendCommand(new String[] {"ADD_PLAYER", String.valueOf(number)},
+				new WireProtocol.FrameWriter(WireProtocol.ADD_PLAYER).putVarint(number));
+	}
+
+	public void removePlayer(int number) {
+		sendCommand(new String[] {"REMOVE_PLAYER", String.valueOf(number)},
+				new WireProtocol.FrameWriter(WireProtocol.REMOVE_PLAYER).putVarint(number));
+	}
+
+	//Asks which players the server has on this coach's field.
+	public void getLineup() {
+		sendCommand(new String[] {"GET_LINEUP"}, new WireProtocol.FrameWriter(WireProtocol.GET_LINEUP));
+	}
+
+	public void getActiveCoaches() {
+		sendCommand(new String[] {"GET_ACTIVE_COACHES"}, new WireProtocol.FrameWriter(WireProtocol.GET_ACTIVE_COACHES));
+	}
+
+	public void sendLineupTo(String coach, List<Player> lineup) {
+		List<String> lines = new ArrayList<>(lineup.size() * 3 + 3);
+		WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.SEND_LINEUP_TO)
+				.putString(coach).putVarint(lineup.size());
+		lines.add("SEND_LINEUP_TO");
+		lines.add(coach);
+		for (Player player : lineup) {
+			lines.add(String.valueOf(player.getNumber()));
+			lines.add(String.valueOf(player.getX()));
+			lines.add(String.valueOf(player.getY()));
+			frame.putVarint(player.getNumber())
+					.putShort(WireProtocol.toFieldUnits(player.getX()))
+					.putShort(WireProtocol.toFieldUnits(player.getY()));
+		}
+		lines.add("END_LINEUP");
+		sendCommand(lines.toArray(new String[0]), frame);
+	}
+
+	public void acceptLineup(long offerId) {
+		sendCommand(new String[] {"ACCEPT_LINEUP", String.valueOf(offerId)},
+				new WireProtocol.FrameWriter(WireProtocol.ACCEPT_LINEUP).putVarlong(offerId));
+	}
+
+	public void declineLineup(long offerId) {
+		sendCommand(new String[] {"DECLINE_LINEUP", String.valueOf(offerId)},
+				new WireProtocol.FrameWriter(WireProtocol.DECLINE_LINEUP).putVarlong(offerId));
+	}
+
+	//Opts in or out of the shared board.
+	public void shareBoard(boolean sharing) {
+		sendCommand(new String[] {"SHARE_BOARD", sharing ? "ON" : "OFF"},
+				new WireProtocol.FrameWriter(WireProtocol.SHARE_BOARD).putByte(sharing ? 1 : 0));
+	}
+
+	//Sends the latest positions of the players dragged since the last call.
+	public void movePlayers(List<LineupEntry> moves) {
+		List<String> lines = new ArrayList<>(moves.size() + 2);
+		WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.MOVE_PLAYERS).putVarint(moves.size());
+		lines.add("MOVE_PLAYERS");
+		for (LineupEntry move : moves) {
+			lines.add(move.getPlayerNumber() + " " + move.getX() + " " + move.getY());
+			frame.putVarint(move.getPlayerNumber())
+					.putShort(WireProtocol.toFieldUnits(move.getX()))
+					.putShort(WireProtocol.toFieldUnits(move.getY()));
+		}
+		lines.add("END_MOVES");
+		sendCommand(lines.toArray(new String[0]), frame);
+	}
+
+	//Answers the server's heartbeat.
+	private void pong() {
+		sendCommand(new String[] {"PONG"}, new WireProtocol.FrameWriter(WireProtocol.PONG));
+	}
+
+	public void quit() {
+		sendCommand(new String[] {"QUIT"}, new WireProtocol.FrameWriter(WireProtocol.QUIT));
+	}
+
+	//Writes a command in whichever protocol is active.
+	private void sendCommand(String[] lines, WireProtocol.FrameWriter frame) {
+		writeLock.lock();
+		try {
+			if (binaryOutput) {
+				outgoing.write(frame.toFrame());
+				outgoing.flush();
+			} else {
+				writeLines(lines);
+			}
+		} catch (IOException e) {
+			System.out.println("Error sending command: " + e.getMessage());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	//Writes text lines, also used for the negotiation which always happens in text.
+	private void writeLines(String... lines) {
+		writeLock.lock();
+		try {
+			for (String line : lines) {
+				outgoing.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+			outgoing.flush();
+		} catch (IOException e) {
+			System.out.println("Error sending command: " + e.getMessage());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	//Reads one server message and passes it to the handler. Returns false once the server closed the connection.
+	public boolean readMessage(ServerMessageHandler handler) throws IOException {
+		if (!readNext(handler)) {
+			return false;
+		}
+		acknowledged = counted.count;
+		return true;
+	}
+
+	//Reads one message in whichever protocol is active.
+	private boolean readNext(ServerMessageHandler handler) throws IOException {
+		if (binaryInput) {
+			return readFrame(handler);
+		}
+		String line = readLine();
+		if (line == null) {
+			return false;
+		}
+
+		if (line.equals(WireProtocol.BINARY_ACCEPTED)) {
+			binaryInput = true;
+			writeLock.lock();
+			try {
+				writeLines(WireProtocol.BINARY_START);
+				binaryOutput = true;
+			} finally {
+				writeLock.unlock();
+			}
+		} else if (line.equals("ROSTER_DELTA")) {
+			List<RosterDelta> deltas = new ArrayList<>();
+			while (!(line = readRequiredLine()).equals("END_DELTA")) {
+				String[] fields = line.split(" ");
+				int number = Integer.parseInt(fields[0]);
+				long version = Long.parseLong(fields[2]);
+				if (RosterDelta.Op.valueOf(fields[1]) == RosterDelta.Op.PUT) {
+					String name = readRequiredLine();
+					String position = readRequiredLine().intern();
+					deltas.add(RosterDelta.put(new Player(number, name, position), version));
+				} else {
+					deltas.add(RosterDelta.remove(number, version));
+				}
+			}
+			handler.handleRosterDelta(deltas);
+		} else if (line.equals("SUCCESS") || line.equals("LINEUP_DECLINED")) {
+			//After PROTOCOL TEXT 2 a SUCCESS is a single line, even when it answers ADD_PLAYER
+			handler.handleCommandResult(null);
+		} else if (line.startsWith("ERROR: ")) {
+			handler.handleCommandResult(line.substring("ERROR: ".length()));
+		} else if (line.equals("PING")) {
+			pong();
+		} else if (line.equals("SESSION")) {
+			sessionToken = readRequiredLine();
+			handler.handleSession(readRequiredLine());
+		} else if (line.equals("ROSTER_VERSION")) {
+			handler.handleRosterVersion(Long.parseLong(readRequiredLine()));
+		} else if (line.equals("BEGIN_PLAYER_LIST")) {
+			List<Player> players = new ArrayList<>();
+			while (!(line = readRequiredLine()).equals("END_PLAYER_LIST")) {
+				int number = Integer.parseInt(line);
+				String name = readRequiredLine();
+				String position = readRequiredLine().intern();
+				players.add(new Player(number, name, position));
+			}
+			handler.handlePlayerList(players);
+		} else if (line.equals("ACTIVE_COACHES")) {
+			List<String> coaches = new ArrayList<>();
+			while (!(line = readRequiredLine()).equals("END_COACHES")) {
+				coaches.add(line);
+			}
+			handler.handleActiveCoaches(coaches);
+		} else if (line.equals("LINEUP_OFFER")) {
+			String fromCoach = readRequiredLine();
+			handler.handleLineupOffer(fromCoach, Long.parseLong(readRequiredLine()));
+		} else if (line.equals("LINEUP_RECEIVED")) {
+			List<LineupEntry> lineup = new ArrayList<>();
+			while (!(line = readRequiredLine()).equals("END_LINEUP")) {
+				int number = Integer.parseInt(line);
+				double x = Double.parseDouble(readRequiredLine());
+				double y = Double.parseDouble(readRequiredLine());
+				lineup.add(new LineupEntry(number, x, y));
+			}
+			handler.handleLineupReceived(lineup);
+		} else if (line.equals("LINEUP")) {
+			List<Integer> numbers = new ArrayList<>();
+			while (!(line = readRequiredLine()).equals("END_LINEUP")) {
+				numbers.add(Integer.parseInt(line));
+			}
+			handler.handleLineup(numbers.stream().mapToInt(Integer::intValue).toArray());
+		} else if (line.equals("COACH_DISCONNECTED")) {
+			handler.handleCoachDisconnected(readRequiredLine());
+		} else if (line.equals("PLAYER_MOVED")) {
+			String fromCoach = readRequiredLine();
+			String[] fields = readRequiredLine().split(" ");
+			handler.handlePlayerMoved(fromCoach,
+					new LineupEntry(Integer.parseInt(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+		}
+		return true;
+	}
+
+	//Reads one length-prefixed frame and decodes it by opcode.
+	private boolean readFrame(ServerMessageHandler handler) throws IOException {
+		int length;
+		try {
+			length = readVarint();
+		} catch (EOFException e) {
+			return false;
+		}
+		if (length < 1 || length > WireProtocol.MAX_FRAME_LENGTH) {
+			throw new IOException("Invalid frame length " + length);
+		}
+		byte[] bytes = new byte[length];
+		incoming.readFully(bytes);
+		ByteBuffer frame = ByteBuffer.wrap(bytes);
+
+		switch (frame.get()) {
+		case WireProtocol.PING:
+			pong();
+			break;
+		case WireProtocol.SESSION:
+			sessionToken = WireProtocol.getString(frame);
+			handler.handleSession(WireProtocol.getString(frame));
+			break;
+		case WireProtocol.ROSTER_VERSION:
+			handler.handleRosterVersion(WireProtocol.getVarlong(frame));
+			break;
+		case WireProtocol.PLAYER_LIST: {
+			int count = WireProtocol.getVarint(frame);
+			List<Player> players = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int number = WireProtocol.getVarint(frame);
+				String name = WireProtocol.getString(frame);
+				String position = WireProtocol.getString(frame).intern();
+				players.add(new Player(number, name, position));
+			}
+			handler.handlePlayerList(players);
+			break;
+		}
+		case WireProtocol.ROSTER_DELTA: {
+			long version = WireProtocol.getVarlong(frame);
+			int count = WireProtocol.getVarint(frame);
+			List<RosterDelta> deltas = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int number = WireProtocol.getVarint(frame);
+				if (RosterDelta.Op.values()[frame.get()] == RosterDelta.Op.PUT) {
+					String name = WireProtocol.getString(frame);
+					String position = WireProtocol.getString(frame).intern();
+					deltas.add(RosterDelta.put(new Player(number, name, position), version + i));
+				} else {
+					deltas.add(RosterDelta.remove(number, version + i));
+				}
+			}
+			handler.handleRosterDelta(deltas);
+			break;
+		}
+		case WireProtocol.ACTIVE_COACHES: {
+			int count = WireProtocol.getVarint(frame);
+			List<String> coaches = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				coaches.add(WireProtocol.getString(frame));
+			}
+			handler.handleActiveCoaches(coaches);
+			break;
+		}
+		case WireProtocol.LINEUP_OFFER:
+			handler.handleLineupOffer(WireProtocol.getString(frame), WireProtocol.getVarlong(frame));
+			break;
+		case WireProtocol.LINEUP_RECEIVED: {
+			int count = WireProtocol.getVarint(frame);
+			List<LineupEntry> lineup = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int number = WireProtocol.getVarint(frame);
+				double x = WireProtocol.fromFieldUnits(frame.getShort());
+				double y = WireProtocol.fromFieldUnits(frame.getShort());
+				lineup.add(new LineupEntry(number, x, y));
+			}
+			handler.handleLineupReceived(lineup);
+			break;
+		}
+		case WireProtocol.LINEUP: {
+			int[] numbers = new int[WireProtocol.getVarint(frame)];
+			for (int i = 0; i < numbers.length; i++) {
+				numbers[i] = WireProtocol.getVarint(frame);
+			}
+			handler.handleLineup(numbers);
+			break;
+		}
+		case WireProtocol.COACH_DISCONNECTED:
+			handler.handleCoachDisconnected(WireProtocol.getString(frame));
+			break;
+		case WireProtocol.PLAYER_MOVED: {
+			String fromCoach = WireProtocol.getString(frame);
+			int number = WireProtocol.getVarint(frame);
+			double x = WireProtocol.fromFieldUnits(frame.getShort());
+			double y = WireProtocol.fromFieldUnits(frame.getShort());
+			handler.handlePlayerMoved(fromCoach, new LineupEntry(number, x, y));
+			break;
+		}
+		case WireProtocol.SUCCESS:
+		case WireProtocol.PLAYER_ADDED:
+		case WireProtocol.LINEUP_DECLINED:
+			handler.handleCommandResult(null);
+			break;
+		case WireProtocol.ERROR:
+			handler.handleCommandResult(WireProtocol.getString(frame));
+			break;
+		default:
+			break;
+		}
+		return true;
+	}
+
+	//Reads a UTF-8 line without buffering past it, so the stream can switch to frames right after. Null at end of stream.
+	private String readLine() throws IOException {
+		int length = 0;
+		int b;
+		while ((b = incoming.read()) != '\n') {
+			if (b < 0) {
+				if (length == 0) {
+					return null;
+				}
+				break;
+			}
+			if (length == lineBytes.length) {
+				lineBytes = Arrays.copyOf(lineBytes, length * 2);
+			}
+			lineBytes[length++] = (byte) b;
+		}
+		if (length > 0 && lineBytes[length - 1] == '\r') {
+			length--;
+		}
+		return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	//Reads a line that is part of a message, the server closing in the middle of it is an error.
+	private String readRequiredLine() throws IOException {
+		String line = readLine();
+		if (line == null) {
+			throw new EOFException("Connection closed in the middle of a message");
+		}
+		return line;
+	}
+
+	//Reads an unsigned LEB128 varint straight from the stream.
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = incoming.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed frame length");
+	}
+}
@@ -0,0 +1,172 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Structured server log - Each event is a name plus key/value fields. Callers only put the event on a lock-free ring,
+//a background thread formats it as one logfmt line and writes it to the console or a rotating file, so sessions never
+//wait on I/O. Events that find the ring full are dropped and counted. Guard debug events with isEnabled before
+//building their fields.
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public final class ServerLog {
+	public enum Level {
+		DEBUG, INFO, WARN, ERROR
+	}
+
+	private static final int RING_CAPACITY = 16 * 1024;
+	private static final long IDLE_PARK_NANOS = 1_000_000;
+	private static final RingBuffer<Event> ring = new RingBuffer<>(RING_CAPACITY);
+	private static final LongAdder dropped = new LongAdder();
+	private static volatile Level threshold = Level.INFO;
+	//Null while logging to the console, only used by the writer thread once set
+	private static volatile RotatingLogFile file;
+
+	static {
+		Thread writer = new Thread(ServerLog::drain, "server-log");
+		writer.setDaemon(true);
+		writer.start();
+		//Writes what is still queued when the server is stopped
+		Runtime.getRuntime().addShutdownHook(new Thread(ServerLog::flushRemaining, "server-log-flush"));
+	}
+
+	private static final class Event {
+		private final long timeMillis = System.currentTimeMillis();
+		private final Level level;
+		private final String name;
+		private final Object[] fields;
+
+		private Event(Level level, String name, Object[] fields) {
+			this.level = level;
+			this.name = name;
+			this.fields = fields;
+		}
+	}
+
+	private ServerLog() {
+	}
+
+	//Writes to a rotating file instead of the console.
+	public static void logToFile(Path path, long maxBytes, int keptFiles) throws IOException {
+		file = new RotatingLogFile(path, maxBytes, keptFiles);
+	}
+
+	public static void setLevel(Level level) {
+		threshold = level;
+	}
+
+	public static Level getLevel() {
+		return threshold;
+	}
+
+	//Whether events of a level are kept, one volatile read.
+	public static boolean isEnabled(Level level) {
+		return level.compareTo(threshold) >= 0;
+	}
+
+	//Getter for how many events were dropped because the writer fell behind.
+	public static long getDropped() {
+		return dropped.sum();
+	}
+
+	//Fields are alternating keys and values: debug("command", "coach", name, "latency_us", 12).
+	public static void debug(String event, Object... fields) {
+		log(Level.DEBUG, event, fields);
+	}
+
+	public static void info(String event, Object... fields) {
+		log(Level.INFO, event, fields);
+	}
+
+	public static void warn(String event, Object... fields) {
+		log(Level.WARN, event, fields);
+	}
+
+	public static void error(String event, Object... fields) {
+		log(Level.ERROR, event, fields);
+	}
+
+	private static void log(Level level, String event, Object[] fields) {
+		if (isEnabled(level) && !ring.offer(new Event(level, event, fields))) {
+			dropped.increment();
+		}
+	}
+
+	//Writer loop: writes everything queued, flushes, then waits a millisecond before looking again.
+	private static void drain() {
+		while (true) {
+			if (!writeQueued()) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+			}
+		}
+	}
+
+	//Writes every queued event, returns whether there was any.
+	private static synchronized boolean writeQueued() {
+		Event event = ring.poll();
+		if (event == null) {
+			return false;
+		}
+		RotatingLogFile target = file;
+		try {
+			for (; event != null; event = ring.poll()) {
+				String line = format(event);
+				if (target != null) {
+					target.write(line);
+				} else {
+					System.out.println(line);
+				}
+			}
+			if (target != null) {
+				target.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot write log file, logging to the console: " + e.getMessage());
+			file = null;
+		}
+		return true;
+	}
+
+	private static void flushRemaining() {
+		writeQueued();
+	}
+
+	//Formats an event as logfmt: time=... level=info event=coach_connected coach="Ana Lopez"
+	private static String format(Event event) {
+		StringBuilder line = new StringBuilder(96);
+		line.append("time=").append(Instant.ofEpochMilli(event.timeMillis))
+				.append(" level=").append(event.level.name().toLowerCase())
+				.append(" event=").append(event.name);
+		for (int i = 0; i + 1 < event.fields.length; i += 2) {
+			line.append(' ').append(event.fields[i]).append('=');
+			appendValue(line, event.fields[i + 1]);
+		}
+		return line.toString();
+	}
+
+	//Numbers and simple words are written as they are, anything else is quoted.
+	private static void appendValue(StringBuilder line, Object value) {
+		String text = String.valueOf(value);
+		boolean plain = !text.isEmpty();
+		for (int i = 0; i < text.length() && plain; i++) {
+			char c = text.charAt(i);
+			plain = c > ' ' && c != '"' && c != '=' && c != '\\';
+		}
+		if (plain) {
+			line.append(text);
+			return;
+		}
+		line.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				line.append('\\').append(c);
+			} else if (c == '\n') {
+				line.append("\\n");
+			} else {
+				line.append(c);
+			}
+		}
+		line.append('"');
+	}
+}
@@ -0,0 +1,29 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Receives the server messages decoded by ServerChannel, whichever protocol they arrived in.
+import java.util.List;
+
+public interface ServerMessageHandler {
+	//Name the server registered this coach under, it has a suffix such as " (2)" when the requested one was taken.
+	void handleSession(String coachName);
+
+	void handleRosterVersion(long version);
+
+	void handlePlayerList(List<Player> players);
+
+	void handleRosterDelta(List<RosterDelta> deltas);
+
+	void handleActiveCoaches(List<String> coaches);
+
+	void handleLineupOffer(String fromCoach, long offerId);
+
+	void handleLineupReceived(List<LineupEntry> lineup);
+
+	void handleLineup(int[] playerNumbers);
+
+	void handleCoachDisconnected(String coachName);
+
+	void handlePlayerMoved(String fromCoach, LineupEntry move);
+
+	//Answer to a command that carries no data (SUCCESS, PLAYER_ADDED, LINEUP_DECLINED or ERROR), error is null on success.
+	void handleCommandResult(String error);
+}
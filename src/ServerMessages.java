@@ -0,0 +1,198 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Builds every server to client message. Replies to the coach's own commands are encoded only in the protocol it reads,
+//messages shared by several coaches or queued from another coach's thread in both.
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class ServerMessages {
+	private static final OutboundMessage SUCCESS = OutboundMessage.preEncoded(
+			new String[] {"SUCCESS"}, new WireProtocol.FrameWriter(WireProtocol.SUCCESS));
+	//Keyed so a coach that is slow to read never has more than one ping waiting
+	private static final OutboundMessage PING = OutboundMessage.keyed("ping",
+			new String[] {"PING"}, new WireProtocol.FrameWriter(WireProtocol.PING));
+	private static final OutboundMessage LINEUP_DECLINED = OutboundMessage.preEncoded(
+			new String[] {"LINEUP_DECLINED"}, new WireProtocol.FrameWriter(WireProtocol.LINEUP_DECLINED));
+	private static final OutboundMessage PLAYERS_UPDATED = OutboundMessage.textOnly("PLAYERS_UPDATED");
+
+	private ServerMessages() {
+	}
+
+	//Always queued before the coach's output switches to binary, so it only has a text form.
+	public static OutboundMessage binaryAccepted() {
+		return OutboundMessage.textOnly(WireProtocol.BINARY_ACCEPTED);
+	}
+
+	//Token the coach presents to resume its session after its connection drops, and the name it was registered under.
+	public static OutboundMessage session(boolean binary, String token, String coachName) {
+		if (binary) {
+			return OutboundMessage.binaryOnly(new WireProtocol.FrameWriter(WireProtocol.SESSION).putString(token).putString(coachName));
+		}
+		return OutboundMessage.textOnly("SESSION", token, coachName);
+	}
+
+	//Both answers to a resume request are sent before the coach's output switches to binary, so they only have a text form.
+	public static OutboundMessage resumed(boolean readingFrames) {
+		return OutboundMessage.textOnly(WireProtocol.RESUMED + (readingFrames ? " " + WireProtocol.BINARY_START : ""));
+	}
+
+	public static OutboundMessage resumeFailed() {
+		return OutboundMessage.textOnly(WireProtocol.RESUME_FAILED);
+	}
+
+	public static OutboundMessage rosterVersion(long version) {
+		return OutboundMessage.of(new String[] {"ROSTER_VERSION", String.valueOf(version)},
+				new WireProtocol.FrameWriter(WireProtocol.ROSTER_VERSION).putVarlong(version));
+	}
+
+	//Encoded once per roster change and cached, so it is built off-heap.
+	public static OutboundMessage playerList(Collection<Player> players) {
+		List<String> lines = new ArrayList<>(players.size() * 3 + 2);
+		WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.PLAYER_LIST).putVarint(players.size());
+		lines.add("BEGIN_PLAYER_LIST");
+		for (Player player : players) {
+			lines.add(String.valueOf(player.getNumber()));
+			lines.add(player.getName());
+			lines.add(player.getPosition());
+			frame.putVarint(player.getNumber()).putString(player.getName()).putString(player.getPosition());
+		}
+		lines.add("END_PLAYER_LIST");
+		return OutboundMessage.preEncoded(lines.toArray(new String[0]), frame);
+	}
+
+	//Its text form is what the original client reads, a later text client is answered with a plain SUCCESS.
+	public static OutboundMessage playerAdded(boolean binary, int number, String name, String position) {
+		if (binary) {
+			return OutboundMessage.binaryOnly(new WireProtocol.FrameWriter(WireProtocol.PLAYER_ADDED)
+					.putVarint(number).putString(name).putString(position));
+		}
+		return OutboundMessage.textOnly("SUCCESS", String.valueOf(number), name, position);
+	}
+
+	public static OutboundMessage ping() {
+		return PING;
+	}
+
+	public static OutboundMessage success() {
+		return SUCCESS;
+	}
+
+	public static OutboundMessage error(boolean binary, String reason) {
+		if (binary) {
+			return OutboundMessage.binaryOnly(new WireProtocol.FrameWriter(WireProtocol.ERROR).putString(reason));
+		}
+		return OutboundMessage.textOnly("ERROR: " + reason);
+	}
+
+	//Versions in a batch are consecutive, so the frame only carries the first one. A PUT carries the whole player.
+	public static OutboundMessage rosterDelta(List<RosterDelta> deltas) {
+		List<String> lines = new ArrayList<>(deltas.size() * 3 + 2);
+		WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.ROSTER_DELTA)
+				.putVarlong(deltas.get(0).getVersion()).putVarint(deltas.size());
+		lines.add("ROSTER_DELTA");
+		for (RosterDelta delta : deltas) {
+			lines.add(delta.getPlayerNumber() + " " + delta.getOp() + " " + delta.getVersion());
+			frame.putVarint(delta.getPlayerNumber()).putByte(delta.getOp().ordinal());
+			Player player = delta.getPlayer();
+			if (player != null) {
+				lines.add(player.getName());
+				lines.add(player.getPosition());
+				frame.putString(player.getName()).putString(player.getPosition());
+			}
+		}
+		lines.add("END_DELTA");
+		return OutboundMessage.of(lines.toArray(new String[0]), frame);
+	}
+
+	//What the original client is told in place of a roster delta, it then asks for the whole list.
+	public static OutboundMessage playersUpdated() {
+		return PLAYERS_UPDATED;
+	}
+
+	public static OutboundMessage activeCoaches(boolean binary, List<String> coachNames) {
+		if (binary) {
+			WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.ACTIVE_COACHES).putVarint(coachNames.size());
+			for (String coachName : coachNames) {
+				frame.putString(coachName);
+			}
+			return OutboundMessage.binaryOnly(frame);
+		}
+		List<String> lines = new ArrayList<>(coachNames.size() + 2);
+		lines.add("ACTIVE_COACHES");
+		lines.addAll(coachNames);
+		lines.add("END_COACHES");
+		return OutboundMessage.textOnly(lines.toArray(new String[0]));
+	}
+
+	//Numbers of the players the coach has on the field according to the server.
+	public static OutboundMessage lineup(boolean binary, int[] playerNumbers) {
+		if (binary) {
+			WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.LINEUP).putVarint(playerNumbers.length);
+			for (int number : playerNumbers) {
+				frame.putVarint(number);
+			}
+			return OutboundMessage.binaryOnly(frame);
+		}
+		String[] lines = new String[playerNumbers.length + 2];
+		lines[0] = "LINEUP";
+		for (int i = 0; i < playerNumbers.length; i++) {
+			lines[i + 1] = String.valueOf(playerNumbers[i]);
+		}
+		lines[lines.length - 1] = "END_LINEUP";
+		return OutboundMessage.textOnly(lines);
+	}
+
+	//Carries the offer id the coach answers with. Queued by the sending coach's thread, which cannot tell whether the
+	//receiving coach is switching to binary, so it is encoded both ways.
+	public static OutboundMessage lineupOffer(LineupOffer offer) {
+		return OutboundMessage.of(new String[] {"LINEUP_OFFER", offer.getFromCoach(), String.valueOf(offer.getId())},
+				new WireProtocol.FrameWriter(WireProtocol.LINEUP_OFFER).putString(offer.getFromCoach()).putVarlong(offer.getId()));
+	}
+
+	//The offer as the original client reads it, without an id. Its frame is the usual one, for a client that asked for
+	//binary while the offer was being queued.
+	public static OutboundMessage originalLineupOffer(LineupOffer offer) {
+		return OutboundMessage.of(new String[] {"LINEUP_OFFER", offer.getFromCoach()},
+				new WireProtocol.FrameWriter(WireProtocol.LINEUP_OFFER).putString(offer.getFromCoach()).putVarlong(offer.getId()));
+	}
+
+	public static OutboundMessage lineupReceived(boolean binary, List<LineupEntry> lineup) {
+		if (binary) {
+			WireProtocol.FrameWriter frame = new WireProtocol.FrameWriter(WireProtocol.LINEUP_RECEIVED).putVarint(lineup.size());
+			for (LineupEntry entry : lineup) {
+				frame.putVarint(entry.getPlayerNumber())
+						.putShort(WireProtocol.toFieldUnits(entry.getX()))
+						.putShort(WireProtocol.toFieldUnits(entry.getY()));
+			}
+			return OutboundMessage.binaryOnly(frame);
+		}
+		List<String> lines = new ArrayList<>(lineup.size() * 3 + 2);
+		lines.add("LINEUP_RECEIVED");
+		for (LineupEntry entry : lineup) {
+			lines.add(String.valueOf(entry.getPlayerNumber()));
+			lines.add(String.valueOf(entry.getX()));
+			lines.add(String.valueOf(entry.getY()));
+		}
+		lines.add("END_LINEUP");
+		return OutboundMessage.textOnly(lines.toArray(new String[0]));
+	}
+
+	public static OutboundMessage lineupDeclined() {
+		return LINEUP_DECLINED;
+	}
+
+	//Keyed per coach and player, so a queued move is replaced by a newer one instead of piling up behind a slow reader.
+	public static OutboundMessage playerMoved(String fromCoach, LineupEntry move) {
+		return OutboundMessage.keyed("move:" + fromCoach + ":" + move.getPlayerNumber(),
+				new String[] {"PLAYER_MOVED", fromCoach, move.getPlayerNumber() + " " + move.getX() + " " + move.getY()},
+				new WireProtocol.FrameWriter(WireProtocol.PLAYER_MOVED).putString(fromCoach)
+						.putVarint(move.getPlayerNumber())
+						.putShort(WireProtocol.toFieldUnits(move.getX()))
+						.putShort(WireProtocol.toFieldUnits(move.getY())));
+	}
+
+	public static OutboundMessage coachDisconnected(String coachName) {
+		return OutboundMessage.of(new String[] {"COACH_DISCONNECTED", coachName},
+				new WireProtocol.FrameWriter(WireProtocol.COACH_DISCONNECTED).putString(coachName));
+	}
+}
@@ -0,0 +1,103 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Server-wide counters, gauges and latency histograms. Recording is an atomic add (LongAdder, LatencyHistogram),
+//so sessions and event loops never wait on each other to be measured. Read through MetricsEndpoint.
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class ServerMetrics {
+	private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+	private static final ConcurrentHashMap<String, LatencyHistogram> commandLatency = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, LatencyHistogram> fanOutLatency = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, LongAdder> fanOutRecipients = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+	private static final LongAdder connections = new LongAdder();
+	private static final LongAdder bytesIn = new LongAdder();
+	private static final LongAdder bytesOut = new LongAdder();
+
+	private ServerMetrics() {
+	}
+
+	//Records how long the server took to handle one command, from decoding it to queuing its reply.
+	public static void recordCommand(String command, long nanos) {
+		histogram(commandLatency, command).record(nanos);
+	}
+
+	//Records one message handed to every recipient of a broadcast kind, and how long queuing it took.
+	public static void recordFanOut(String kind, int recipients, long nanos) {
+		histogram(fanOutLatency, kind).record(nanos);
+		LongAdder total = fanOutRecipients.get(kind);
+		if (total == null) {
+			total = fanOutRecipients.computeIfAbsent(kind, key -> new LongAdder());
+		}
+		total.add(recipients);
+	}
+
+	public static void connectionOpened() {
+		connections.increment();
+	}
+
+	public static void addBytesIn(long bytes) {
+		bytesIn.add(bytes);
+	}
+
+	public static void addBytesOut(long bytes) {
+		bytesOut.add(bytes);
+	}
+
+	//Adds a value computed each time the metrics are read.
+	public static void registerGauge(String name, LongSupplier value) {
+		gauges.put(name, value);
+	}
+
+	//Writes every metric in the Prometheus text format, latencies in microseconds.
+	public static void writeTo(StringBuilder out) {
+		counter(out, "lineup_connections_total", connections.sum());
+		counter(out, "lineup_bytes_received_total", bytesIn.sum());
+		counter(out, "lineup_bytes_sent_total", bytesOut.sum());
+		counter(out, "lineup_log_events_dropped_total", ServerLog.getDropped());
+		for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+			out.append("# TYPE ").append(gauge.getKey()).append(" gauge\n");
+			out.append(gauge.getKey()).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+		}
+		summary(out, "lineup_command_latency_microseconds", "command", commandLatency);
+		summary(out, "lineup_fanout_latency_microseconds", "kind", fanOutLatency);
+		out.append("# TYPE lineup_fanout_recipients_total counter\n");
+		for (Map.Entry<String, LongAdder> total : new TreeMap<>(fanOutRecipients).entrySet()) {
+			out.append("lineup_fanout_recipients_total{kind=\"").append(total.getKey()).append("\"} ")
+					.append(total.getValue().sum()).append('\n');
+		}
+	}
+
+	//The map only ever holds a few keys, so after the first record of each this is a plain lookup.
+	private static LatencyHistogram histogram(ConcurrentHashMap<String, LatencyHistogram> histograms, String key) {
+		LatencyHistogram histogram = histograms.get(key);
+		return histogram != null ? histogram : histograms.computeIfAbsent(key, name -> new LatencyHistogram());
+	}
+
+	private static void counter(StringBuilder out, String name, long value) {
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void summary(StringBuilder out, String name, String label, Map<String, LatencyHistogram> histograms) {
+		out.append("# TYPE ").append(name).append(" summary\n");
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			String labels = label + "=\"" + entry.getKey() + "\"";
+			for (double quantile : QUANTILES) {
+				out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+						.append(micros(histogram.valueAtPercentile(quantile * 100))).append('\n');
+			}
+			out.append(name).append("_max{").append(labels).append("} ").append(micros(histogram.getMax())).append('\n');
+			out.append(name).append("_sum{").append(labels).append("} ").append(micros(histogram.getTotal())).append('\n');
+			out.append(name).append("_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+		}
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+}
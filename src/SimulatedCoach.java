@@ -0,0 +1,339 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//One headless coach for LoadGenerator - Talks to the server through ServerChannel like LineupController does, running
+//its script step by step and timing each command from the moment it is sent until its answer is read.
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SimulatedCoach implements Runnable, ServerMessageHandler {
+	//Steps a script may use: players, lineup, coaches, add, remove, send, accept, drop
+	public static final List<String> STEPS = List.of("players", "lineup", "coaches", "add", "remove", "send", "accept", "drop");
+	private static final int REPLY_TIMEOUT_MILLIS = 10_000;
+	private static final int MAX_PLAYERS = CoachLineup.MAX_PLAYERS;
+	private final String host;
+	private final int port;
+	private final int coachIndex;
+	private final String coachName;
+	private final int coachCount;
+	//Coach i is in room i % roomCount and only sends lineups within it
+	private final int roomCount;
+	private final List<String> script;
+	private final long thinkMillis;
+	private final long deadlineNanos;
+	private final LoadReport report;
+	//Name the server registered this coach under, which is another one if its old session still held coachName
+	private String registeredName;
+	private Socket socket;
+	private ServerChannel channel;
+	private List<Player> roster = List.of();
+	//Player numbers the server has on this coach's field, as far as its answers tell
+	private final List<Integer> onField = new ArrayList<>();
+	private final Deque<Long> offers = new ArrayDeque<>();
+	private boolean answered;
+	private String error;
+
+	public SimulatedCoach(String host, int port, int coachIndex, int coachCount, int roomCount, List<String> script,
+			long thinkMillis, long deadlineNanos, LoadReport report) {
+		this.host = host;
+		this.port = port;
+		this.coachIndex = coachIndex;
+		this.coachName = coachName(coachIndex);
+		this.coachCount = coachCount;
+		this.roomCount = roomCount;
+		this.script = script;
+		this.thinkMillis = thinkMillis;
+		this.deadlineNanos = deadlineNanos;
+		this.report = report;
+	}
+
+	//Name of the simulated coach with the given index.
+	public static String coachName(int coachIndex) {
+		return "sim-" + coachIndex;
+	}
+
+	//Name of a simulated room, null when every coach shares the server's default room.
+	public static String roomName(int coachIndex, int roomCount) {
+		return roomCount > 1 ? "room-" + coachIndex % roomCount : null;
+	}
+
+	//Runs the script over and over until the deadline, resuming the session whenever the connection fails.
+	@Override
+	public void run() {
+		try {
+			while (!pastDeadline()) {
+				try {
+					if (channel == null) {
+						login();
+					} else if (socket.isClosed()) {
+						reconnect();
+					}
+					for (String step : script) {
+						if (pastDeadline()) {
+							break;
+						}
+						runStep(step);
+						Thread.sleep(thinkMillis);
+					}
+				} catch (IOException e) {
+					closeSocket();
+					if (registeredName == null) {
+						//Never logged in, there is no session to resume
+						channel = null;
+					}
+					Thread.sleep(Math.max(thinkMillis, 100));
+				}
+			}
+			if (channel != null) {
+				channel.quit();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			closeSocket();
+		}
+	}
+
+	private boolean pastDeadline() {
+		return System.nanoTime() - deadlineNanos >= 0;
+	}
+
+	private void runStep(String step) throws IOException {
+		switch (step) {
+		case "players":
+			timed("GET_PLAYERS", System.nanoTime(), channel::getPlayers);
+			break;
+		case "lineup":
+			timed("GET_LINEUP", System.nanoTime(), channel::getLineup);
+			break;
+		case "coaches":
+			timed("GET_ACTIVE_COACHES", System.nanoTime(), channel::getActiveCoaches);
+			break;
+		case "add":
+			addBurst();
+			break;
+		case "remove":
+			removeBurst();
+			break;
+		case "send":
+			sendLineup();
+			break;
+		case "accept":
+			answerOffers();
+			break;
+		case "drop":
+			dropAndResume();
+			break;
+		}
+	}
+
+	//Connects, logs in the way LoginScene does and waits for the lineup, timed as LOGIN.
+	private void login() throws IOException {
+		long start = System.nanoTime();
+		try {
+			socket = new Socket(host, port);
+			socket.setSoTimeout(REPLY_TIMEOUT_MILLIS);
+			channel = new ServerChannel(socket);
+			channel.setRoom(roomName(coachIndex, roomCount));
+		} catch (IOException e) {
+			report.failed("LOGIN");
+			throw e;
+		}
+		onField.clear();
+		offers.clear();
+		channel.open(coachName);
+		timed("LOGIN", start, channel::getLineup);
+	}
+
+	//Adds players in random order, one command at a time, until the field is full.
+	private void addBurst() throws IOException {
+		if (roster.isEmpty()) {
+			timed("GET_PLAYERS", System.nanoTime(), channel::getPlayers);
+		}
+		List<Player> candidates = new ArrayList<>(roster);
+		Collections.shuffle(candidates, ThreadLocalRandom.current());
+		for (Player player : candidates) {
+			if (onField.size() >= MAX_PLAYERS) {
+				break;
+			}
+			int number = player.getNumber();
+			if (!onField.contains(number) && timed("ADD_PLAYER", System.nanoTime(), () -> channel.addPlayer(number))) {
+				onField.add(number);
+			}
+		}
+	}
+
+	//Takes every player off the field, one command at a time.
+	private void removeBurst() throws IOException {
+		for (Integer number : new ArrayList<>(onField)) {
+			timed("REMOVE_PLAYER", System.nanoTime(), () -> channel.removePlayer(number));
+		}
+		onField.clear();
+	}
+
+	//Sends the lineup on the field, at random positions, to another simulated coach of the same room.
+	private void sendLineup() throws IOException {
+		int room = coachIndex % roomCount;
+		int roomSize = (coachCount - room + roomCount - 1) / roomCount;
+		if (onField.isEmpty() || roomSize < 2) {
+			return;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int target = random.nextInt(roomSize - 1);
+		int self = coachIndex / roomCount;
+		String targetName = coachName((target >= self ? target + 1 : target) * roomCount + room);
+		List<Player> lineup = new ArrayList<>(onField.size());
+		for (int number : onField) {
+			Player player = new Player(number, "", "");
+			player.setX(random.nextDouble(600));
+			player.setY(random.nextDouble(400));
+			lineup.add(player);
+		}
+		timed("SEND_LINEUP_TO", System.nanoTime(), () -> channel.sendLineupTo(targetName, lineup));
+	}
+
+	//Accepts or declines, at random, every offer received so far.
+	private void answerOffers() throws IOException {
+		while (!offers.isEmpty()) {
+			long offerId = offers.poll();
+			if (ThreadLocalRandom.current().nextBoolean()) {
+				timed("ACCEPT_LINEUP", System.nanoTime(), () -> channel.acceptLineup(offerId));
+			} else {
+				timed("DECLINE_LINEUP", System.nanoTime(), () -> channel.declineLineup(offerId));
+			}
+		}
+	}
+
+	//Resets the connection without QUIT, as a crash or a lost network would, then resumes the session.
+	private void dropAndResume() throws IOException {
+		socket.setSoLinger(true, 0);
+		socket.close();
+		reconnect();
+	}
+
+	//Resumes the session on a new connection like LineupController.reconnect does, timed as RESUME. A session the
+	//server no longer has is replaced by a new login, which the report counts apart since the coach starts over.
+	private void reconnect() throws IOException {
+		long start = System.nanoTime();
+		try {
+			socket = new Socket(host, port);
+			socket.setSoTimeout(REPLY_TIMEOUT_MILLIS);
+		} catch (IOException e) {
+			report.failed("RESUME");
+			throw e;
+		}
+		boolean resumed = channel.resume(socket);
+		report.record("RESUME", System.nanoTime() - start, resumed);
+		if (!resumed) {
+			report.resumeFailed();
+			onField.clear();
+			offers.clear();
+			channel.open(coachName);
+			timed("LOGIN", start, channel::getLineup);
+		}
+	}
+
+	//Sends a command and reads until its answer arrives, handling anything broadcast meanwhile.
+	//Returns whether the server accepted it.
+	private boolean timed(String command, long start, Runnable send) throws IOException {
+		answered = false;
+		error = null;
+		send.run();
+		try {
+			while (!answered) {
+				if (!channel.readMessage(this)) {
+					throw new EOFException("Server closed the connection");
+				}
+			}
+		} catch (IOException e) {
+			report.failed(command);
+			throw e;
+		}
+		report.record(command, System.nanoTime() - start, error == null);
+		return error == null;
+	}
+
+	private void closeSocket() {
+		try {
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			//Already gone
+		}
+	}
+
+	//Answers.
+
+	@Override
+	public void handlePlayerList(List<Player> players) {
+		roster = players;
+		answered = true;
+	}
+
+	@Override
+	public void handleLineup(int[] playerNumbers) {
+		onField.clear();
+		for (int number : playerNumbers) {
+			onField.add(number);
+		}
+		answered = true;
+	}
+
+	@Override
+	public void handleActiveCoaches(List<String> coaches) {
+		answered = true;
+	}
+
+	@Override
+	public void handleLineupReceived(List<LineupEntry> lineup) {
+		onField.clear();
+		for (LineupEntry entry : lineup) {
+			onField.add(entry.getPlayerNumber());
+		}
+		answered = true;
+	}
+
+	@Override
+	public void handleCommandResult(String error) {
+		this.error = error;
+		answered = true;
+	}
+
+	//Broadcasts.
+
+	@Override
+	public void handleLineupOffer(String fromCoach, long offerId) {
+		offers.add(offerId);
+	}
+
+	//Other coaches keep sending lineups to coachName, so a coach registered under another name is counted as renamed.
+	@Override
+	public void handleSession(String assignedName) {
+		if (!assignedName.equals(coachName) && !assignedName.equals(registeredName)) {
+			report.renamed();
+		}
+		registeredName = assignedName;
+	}
+
+	@Override
+	public void handleRosterVersion(long version) {
+	}
+
+	@Override
+	public void handleRosterDelta(List<RosterDelta> deltas) {
+	}
+
+	@Override
+	public void handleCoachDisconnected(String coachName) {
+	}
+
+	@Override
+	public void handlePlayerMoved(String fromCoach, LineupEntry move) {
+	}
+}
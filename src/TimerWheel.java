@@ -0,0 +1,116 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Hashed timing wheel: each timeout goes into the slot of the tick it expires on and one thread walks the slots tick by tick.
+//Scheduling and cancelling cost the same however many timers there are, which suits one heartbeat timer per coach.
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class TimerWheel implements Runnable {
+	private final String name;
+	private final long tickNanos;
+	private final int mask;
+	private final List<List<Timeout>> slots;
+	//Timeouts scheduled from any thread, moved into their slot by the wheel thread
+	private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+	private long startNanos;
+	private volatile long tick;
+
+	//A scheduled task, cancelling only marks it and the wheel drops it when it gets there.
+	public static final class Timeout {
+		private final Runnable task;
+		private final long deadlineTick;
+		private long rounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long deadlineTick) {
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	//The slot count is rounded up to a power of two, one turn of the wheel lasts slots * tick.
+	public TimerWheel(String name, long tick, TimeUnit unit, int slots) {
+		this.name = name;
+		this.tickNanos = unit.toNanos(tick);
+		int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+		this.mask = size - 1;
+		this.slots = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			this.slots.add(new ArrayList<>());
+		}
+	}
+
+	//Starts turning the wheel on a daemon thread, timeouts scheduled before then count from here.
+	public void start() {
+		startNanos = System.nanoTime();
+		Thread thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	//Runs a task on the wheel thread after a delay, rounded up to whole ticks. Tasks must be short, they hold up the wheel.
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		long ticks = Math.max(1, (unit.toNanos(delay) + tickNanos - 1) / tickNanos);
+		Timeout timeout = new Timeout(task, tick + ticks);
+		scheduled.add(timeout);
+		return timeout;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			long next = startNanos + (tick + 1) * tickNanos;
+			long now;
+			while ((now = System.nanoTime()) < next) {
+				LockSupport.parkNanos(next - now);
+			}
+			long current = tick + 1;
+			placeScheduled(current);
+			expire(slots.get((int) (current & mask)));
+			tick = current;
+		}
+	}
+
+	//Puts newly scheduled timeouts in their slot, counting how many full turns they wait first.
+	private void placeScheduled(long current) {
+		Timeout timeout;
+		while ((timeout = scheduled.poll()) != null) {
+			if (timeout.cancelled) {
+				continue;
+			}
+			long deadline = Math.max(timeout.deadlineTick, current);
+			timeout.rounds = (deadline - current) / slots.size();
+			slots.get((int) (deadline & mask)).add(timeout);
+		}
+	}
+
+	//Runs the timeouts of a slot that are due this turn.
+	private void expire(List<Timeout> slot) {
+		List<Timeout> due = new ArrayList<>();
+		for (Iterator<Timeout> it = slot.iterator(); it.hasNext();) {
+			Timeout timeout = it.next();
+			if (timeout.cancelled) {
+				it.remove();
+			} else if (timeout.rounds > 0) {
+				timeout.rounds--;
+			} else {
+				it.remove();
+				due.add(timeout);
+			}
+		}
+		for (Timeout timeout : due) {
+			try {
+				timeout.task.run();
+			} catch (RuntimeException e) {
+				ServerLog.error("timer_task_failed", "error", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Binary wire protocol shared by client and server: length-prefixed frames made of an opcode byte and a compact payload.
+//Frame layout: varint length (opcode + payload), opcode, payload. Numbers are varints, coordinates are shorts in tenths of a pixel.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+public final class WireProtocol {
+	//Negotiation, all sent as text lines: client asks, server accepts and switches, client confirms and switches.
+	public static final String BINARY_REQUEST = "PROTOCOL BINARY 1";
+	public static final String BINARY_ACCEPTED = "PROTOCOL_OK BINARY 1";
+	public static final String BINARY_START = "BINARY";
+
+	//Session resumption, also text lines: "RESUME <token> <bytes read>" in place of the login, answered before anything is resent.
+	//RESUMED is followed by " BINARY" when the server already reads frames from the coach.
+	public static final String RESUME_REQUEST = "RESUME";
+	public static final String RESUMED = "RESUMED";
+	public static final String RESUME_FAILED = "RESUME_FAILED";
+
+	//Optional line before the login asking for the text protocol's later additions: SESSION, ROSTER_VERSION and ROSTER_DELTA,
+	//offer ids, answers to SEND_LINEUP_TO and PING. A coach that never asks, such as the original client, gets the original
+	//text protocol with PLAYERS_UPDATED in place of roster deltas. Asking for binary or resuming implies it.
+	public static final String TEXT_V2_REQUEST = "PROTOCOL TEXT 2";
+
+	//Optional line "ROOM <name>" before the login, coaches only see the roster and coaches of their room.
+	public static final String JOIN_ROOM = "ROOM";
+	public static final int MAX_ROOM_NAME_LENGTH = 64;
+
+	public static final int MAX_FRAME_LENGTH = 1 << 20;
+
+	//Client to server opcodes.
+	public static final byte GET_PLAYERS = 0x01;
+	public static final byte ADD_PLAYER = 0x02;
+	public static final byte REMOVE_PLAYER = 0x03;
+	public static final byte GET_ACTIVE_COACHES = 0x04;
+	public static final byte SEND_LINEUP_TO = 0x05;
+	public static final byte ACCEPT_LINEUP = 0x06;
+	public static final byte DECLINE_LINEUP = 0x07;
+	public static final byte QUIT = 0x08;
+	public static final byte SHARE_BOARD = 0x09;
+	public static final byte MOVE_PLAYERS = 0x0A;
+	public static final byte GET_LINEUP = 0x0B;
+	public static final byte PONG = 0x0C;
+
+	//Command names of the client opcodes, indexed by opcode, the same names the text protocol uses.
+	private static final String[] COMMAND_NAMES = {null, "GET_PLAYERS", "ADD_PLAYER", "REMOVE_PLAYER", "GET_ACTIVE_COACHES",
+			"SEND_LINEUP_TO", "ACCEPT_LINEUP", "DECLINE_LINEUP", "QUIT", "SHARE_BOARD", "MOVE_PLAYERS", "GET_LINEUP", "PONG"};
+	private static final Set<String> COMMANDS = Set.of(Arrays.copyOfRange(COMMAND_NAMES, 1, COMMAND_NAMES.length));
+
+	//Server to client opcodes.
+	public static final byte ROSTER_VERSION = 0x41;
+	public static final byte PLAYER_LIST = 0x42;
+	public static final byte PLAYER_ADDED = 0x43;
+	public static final byte SUCCESS = 0x44;
+	public static final byte ERROR = 0x45;
+	public static final byte ROSTER_DELTA = 0x46;
+	public static final byte ACTIVE_COACHES = 0x47;
+	public static final byte LINEUP_OFFER = 0x48;
+	public static final byte LINEUP_RECEIVED = 0x49;
+	public static final byte LINEUP_DECLINED = 0x4A;
+	public static final byte COACH_DISCONNECTED = 0x4B;
+	public static final byte PLAYER_MOVED = 0x4C;
+	public static final byte LINEUP = 0x4E;
+	public static final byte SESSION = 0x4F;
+	public static final byte PING = 0x50;
+
+	private WireProtocol() {
+	}
+
+	//Returns the command name of a client opcode, or null when the opcode is unknown.
+	public static String commandName(byte opcode) {
+		return opcode > 0 && opcode < COMMAND_NAMES.length ? COMMAND_NAMES[opcode] : null;
+	}
+
+	//Whether a text line is one of the client commands.
+	public static boolean isCommand(String line) {
+		return COMMANDS.contains(line);
+	}
+
+	//Whether a room name is usable: letters, digits, spaces, '-', '_' and '.', never empty nor only dots, as it may name a roster file.
+	public static boolean isRoomName(String name) {
+		if (name.isEmpty() || name.length() > MAX_ROOM_NAME_LENGTH || name.chars().allMatch(c -> c == '.')) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-' && c != '_' && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Converts a canvas coordinate to tenths of a pixel.
+	public static short toFieldUnits(double coordinate) {
+		long units = Math.round(coordinate * 10);
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, units));
+	}
+
+	//Converts tenths of a pixel back to a canvas coordinate.
+	public static double fromFieldUnits(short units) {
+		return units / 10.0;
+	}
+
+	//Reads an unsigned LEB128 varint.
+	public static int getVarint(ByteBuffer in) {
+		return (int) getVarlong(in);
+	}
+
+	//Reads an unsigned LEB128 varlong.
+	public static long getVarlong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	//Reads a varint-length UTF-8 string.
+	public static String getString(ByteBuffer in) {
+		int length = getVarint(in);
+		if (length > in.remaining()) {
+			throw new IllegalArgumentException("String longer than its frame");
+		}
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	//Builds one frame, the length prefix is added by toFrame().
+	public static final class FrameWriter {
+		private byte[] bytes = new byte[32];
+		private int length;
+
+		public FrameWriter(byte opcode) {
+			putByte(opcode);
+		}
+
+		public FrameWriter putByte(int value) {
+			ensure(1);
+			bytes[length++] = (byte) value;
+			return this;
+		}
+
+		public FrameWriter putShort(short value) {
+			ensure(2);
+			bytes[length++] = (byte) (value >> 8);
+			bytes[length++] = (byte) value;
+			return this;
+		}
+
+		public FrameWriter putVarint(int value) {
+			return putVarlong(value & 0xFFFFFFFFL);
+		}
+
+		public FrameWriter putVarlong(long value) {
+			ensure(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+			return this;
+		}
+
+		public FrameWriter putString(String value) {
+			byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+			putVarint(utf8.length);
+			ensure(utf8.length);
+			System.arraycopy(utf8, 0, bytes, length, utf8.length);
+			length += utf8.length;
+			return this;
+		}
+
+		//Returns the finished frame including its length prefix.
+		public byte[] toFrame() {
+			FrameWriter prefix = new FrameWriter();
+			prefix.putVarint(length);
+			byte[] frame = Arrays.copyOf(prefix.bytes, prefix.length + length);
+			System.arraycopy(bytes, 0, frame, prefix.length, length);
+			return frame;
+		}
+
+		private FrameWriter() {
+		}
+
+		private void ensure(int extra) {
+			if (length + extra > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for CoachInputDecoder: lines and frames that arrive split over several reads, and input it must refuse.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CoachInputDecoderTest {
+	private static ByteBuffer bytes(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	//Feeds one byte per read, the way a slow network can deliver it, and returns how many messages were handled.
+	private static int feedByteByByte(CoachSession session, byte[] input) throws IOException {
+		int handled = 0;
+		for (byte b : input) {
+			ByteBuffer read = ByteBuffer.wrap(new byte[] {b});
+			while (session.decodeNext(read)) {
+				handled++;
+			}
+			assertFalse(read.hasRemaining());
+		}
+		return handled;
+	}
+
+	@Test
+	void lineIsHandledOnlyOnceItsNewlineArrives() throws IOException {
+		RecordingConnection connection = new RecordingConnection();
+		CoachSession session = new CoachSession(connection);
+		byte[] input = "Coach name:\nDecoder Ana\nGET_LINEUP\n".getBytes(StandardCharsets.UTF_8);
+		assertEquals(2, feedByteByByte(session, java.util.Arrays.copyOf(input, input.length - 1)));
+		assertFalse(connection.text().contains("END_LINEUP"));
+		assertTrue(session.decodeNext(bytes("\n")));
+		assertTrue(connection.text().endsWith("LINEUP\nEND_LINEUP\n"));
+		session.end();
+	}
+
+	@Test
+	void severalLinesInOneReadAreHandledOneAtATime() throws IOException {
+		RecordingConnection connection = new RecordingConnection();
+		CoachSession session = new CoachSession(connection);
+		ByteBuffer read = bytes("Coach name:\r\nDecoder Luis\r\nGET_LI");
+		assertTrue(session.decodeNext(read));
+		assertTrue(session.decodeNext(read));
+		assertFalse(session.decodeNext(read));
+		//The carriage return of CRLF is not part of the name
+		assertEquals("Decoder Luis", session.getCoachName());
+		assertTrue(session.decodeNext(bytes("NEUP\n")));
+		assertTrue(connection.text().endsWith("LINEUP\nEND_LINEUP\n"));
+		session.end();
+	}
+
+	@Test
+	void framesSplitAcrossReadsAreReassembled() throws IOException {
+		RecordingConnection connection = new RecordingConnection();
+		CoachSession session = new CoachSession(connection);
+		session.decodeNext(bytes("Coach name:\n"));
+		session.decodeNext(bytes("Decoder Eva\n"));
+		ByteBuffer negotiation = bytes(WireProtocol.BINARY_REQUEST + "\n" + WireProtocol.BINARY_START + "\n");
+		while (session.decodeNext(negotiation)) {
+		}
+		byte[] lineup = new WireProtocol.FrameWriter(WireProtocol.GET_LINEUP).toFrame();
+		byte[] pong = new WireProtocol.FrameWriter(WireProtocol.PONG).toFrame();
+		byte[] input = new byte[lineup.length * 2 + pong.length];
+		System.arraycopy(lineup, 0, input, 0, lineup.length);
+		System.arraycopy(pong, 0, input, lineup.length, pong.length);
+		System.arraycopy(lineup, 0, input, lineup.length + pong.length, lineup.length);
+		int before = connection.payloads().size();
+		assertEquals(3, feedByteByByte(session, input));
+
+		List<ByteBuffer> replies = connection.payloads().subList(before, connection.payloads().size());
+		assertEquals(2, replies.size());
+		for (ByteBuffer reply : replies) {
+			WireProtocol.getVarint(reply);
+			assertEquals(WireProtocol.LINEUP, reply.get());
+		}
+		session.end();
+	}
+
+	@Test
+	void refusesALineThatNeverEnds() {
+		CoachSession session = new CoachSession(new RecordingConnection());
+		ByteBuffer endless = ByteBuffer.allocate(64 * 1024 + 1);
+		java.util.Arrays.fill(endless.array(), (byte) 'x');
+		assertThrows(IOException.class, () -> session.decodeNext(endless));
+		session.end();
+	}
+
+	@Test
+	void refusesAnEmptyFrame() throws IOException {
+		CoachSession session = new CoachSession(new RecordingConnection());
+		session.decodeNext(bytes("Coach name:\n"));
+		session.decodeNext(bytes("Decoder Tom\n"));
+		ByteBuffer negotiation = bytes(WireProtocol.BINARY_REQUEST + "\n" + WireProtocol.BINARY_START + "\n");
+		while (session.decodeNext(negotiation)) {
+		}
+		assertThrows(IOException.class, () -> session.decodeNext(ByteBuffer.wrap(new byte[] {0})));
+		session.end();
+	}
+}
@@ -0,0 +1,114 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for CoachOutbox: what each overflow policy does once a slow coach's broadcasts reach capacity.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CoachOutboxTest {
+	private static OutboundMessage move(int playerNumber, double x) {
+		return ServerMessages.playerMoved("Ana", new LineupEntry(playerNumber, x, 0));
+	}
+
+	//Text form of everything queued, one string per message.
+	private static List<String> drain(CoachOutbox outbox) {
+		List<ByteBuffer> payloads = new ArrayList<>();
+		outbox.drainTo(payloads, Integer.MAX_VALUE);
+		List<String> messages = new ArrayList<>();
+		for (ByteBuffer payload : payloads) {
+			messages.add(StandardCharsets.UTF_8.decode(payload).toString());
+		}
+		return messages;
+	}
+
+	@Test
+	void dropDiscardsBroadcastsBeyondCapacity() {
+		CoachOutbox outbox = new CoachOutbox(2, CoachOutbox.OverflowPolicy.DROP);
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("a")));
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("b")));
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("c")));
+		assertEquals(List.of("COACH_DISCONNECTED\na\n", "COACH_DISCONNECTED\nb\n"), drain(outbox));
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("d")));
+		assertEquals(List.of("COACH_DISCONNECTED\nd\n"), drain(outbox));
+	}
+
+	@Test
+	void repliesAreNeverDroppedNorCountedAgainstCapacity() {
+		CoachOutbox outbox = new CoachOutbox(1, CoachOutbox.OverflowPolicy.DROP);
+		outbox.add(ServerMessages.success());
+		outbox.add(ServerMessages.success());
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("a")));
+		assertEquals(3, outbox.size());
+		assertTrue(outbox.isFull());
+	}
+
+	@Test
+	void coalesceReplacesAQueuedMessageWithTheSameKey() {
+		CoachOutbox outbox = new CoachOutbox(2, CoachOutbox.OverflowPolicy.COALESCE);
+		assertTrue(outbox.offer(move(10, 1)));
+		assertTrue(outbox.offer(move(7, 1)));
+		//Full, but player 10's move is still waiting and is replaced in place
+		assertTrue(outbox.offer(move(10, 2)));
+		//Full and nothing to replace, discarded
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("a")));
+		assertEquals(List.of("PLAYER_MOVED\nAna\n10 2.0 0.0\n", "PLAYER_MOVED\nAna\n7 1.0 0.0\n"), drain(outbox));
+	}
+
+	@Test
+	void coalescedKeysAreForgottenOnceWritten() {
+		CoachOutbox outbox = new CoachOutbox(4, CoachOutbox.OverflowPolicy.COALESCE);
+		outbox.offer(move(10, 1));
+		drain(outbox);
+		outbox.offer(move(10, 2));
+		outbox.offer(move(10, 3));
+		assertEquals(List.of("PLAYER_MOVED\nAna\n10 3.0 0.0\n"), drain(outbox));
+	}
+
+	@Test
+	void disconnectRefusesOnceFull() {
+		CoachOutbox outbox = new CoachOutbox(1, CoachOutbox.OverflowPolicy.DISCONNECT);
+		assertTrue(outbox.offer(move(10, 1)));
+		assertFalse(outbox.offer(move(10, 2)));
+	}
+
+	@Test
+	void closedOutboxIgnoresNewMessagesButCanBeDrained() {
+		CoachOutbox outbox = new CoachOutbox(4, CoachOutbox.OverflowPolicy.DISCONNECT);
+		outbox.offer(ServerMessages.coachDisconnected("a"));
+		outbox.close();
+		assertTrue(outbox.offer(ServerMessages.coachDisconnected("b")));
+		outbox.add(ServerMessages.success());
+		assertEquals(List.of("COACH_DISCONNECTED\na\n"), drain(outbox));
+	}
+
+	@Test
+	void transferKeepsOrderAndForwardsLaterMessages() {
+		CoachOutbox dropped = new CoachOutbox(4, CoachOutbox.OverflowPolicy.COALESCE);
+		CoachOutbox parked = new CoachOutbox(4, CoachOutbox.OverflowPolicy.COALESCE);
+		dropped.offer(move(10, 1));
+		dropped.add(ServerMessages.success());
+		dropped.transferTo(parked);
+		dropped.offer(move(10, 2));
+		dropped.add(ServerMessages.lineupDeclined());
+		assertEquals(0, dropped.size());
+		assertEquals(List.of("PLAYER_MOVED\nAna\n10 2.0 0.0\n", "SUCCESS\n", "LINEUP_DECLINED\n"), drain(parked));
+	}
+
+	@Test
+	void messagesKeepTheEncodingTheyWereQueuedWith() {
+		CoachOutbox outbox = new CoachOutbox(4, CoachOutbox.OverflowPolicy.DROP);
+		outbox.add(ServerMessages.success());
+		outbox.useBinary();
+		outbox.add(ServerMessages.success());
+		List<ByteBuffer> payloads = new ArrayList<>();
+		outbox.drainTo(payloads, 8);
+		assertEquals("SUCCESS\n", StandardCharsets.UTF_8.decode(payloads.get(0)).toString());
+		ByteBuffer frame = payloads.get(1);
+		assertEquals(1, WireProtocol.getVarint(frame));
+		assertEquals(WireProtocol.SUCCESS, frame.get());
+	}
+}
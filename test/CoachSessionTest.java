@@ -0,0 +1,130 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for CoachSession over recorded connections: what the original client and the current client are sent.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CoachSessionTest {
+	private static final String ROOM = "session-test";
+
+	@TempDir
+	static Path roomsDirectory;
+
+	@BeforeAll
+	static void writeRoomRoster() throws IOException {
+		Files.writeString(roomsDirectory.resolve(ROOM + ".xml"),
+				"<ROSTER><PLAYER><NUMBER>10</NUMBER><NAME>Ana Diaz</NAME><POSITION>FW</POSITION></PLAYER></ROSTER>");
+		LineupRooms.configure(roomsDirectory);
+	}
+
+	@AfterAll
+	static void forgetRoomRosters() {
+		LineupRooms.configure(null);
+	}
+
+	//Decodes every line in the text.
+	private static void feed(CoachSession session, String lines) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+		while (session.decodeNext(in)) {
+		}
+	}
+
+	@Test
+	void originalClientIsSentTheOriginalTextProtocol() throws IOException {
+		RecordingConnection original = new RecordingConnection();
+		CoachSession originalCoach = new CoachSession(original);
+		feed(originalCoach, "ROOM " + ROOM + "\nCoach name:\nOld Ana\nGET_PLAYERS\nADD_PLAYER\n10\n");
+		//No session token nor roster version ahead of the list, the added player follows SUCCESS
+		assertEquals("BEGIN_PLAYER_LIST\n10\nAna Diaz\nFW\nEND_PLAYER_LIST\nSUCCESS\n10\nAna Diaz\nFW\n", original.text());
+
+		RecordingConnection current = new RecordingConnection();
+		CoachSession currentCoach = new CoachSession(current);
+		feed(currentCoach, WireProtocol.TEXT_V2_REQUEST + "\nROOM " + ROOM + "\nCoach name:\nNew Bo\n");
+		assertTrue(current.text().startsWith("SESSION\n"));
+		feed(currentCoach, "SEND_LINEUP_TO\nOld Ana\n10\n1.5\n2.5\nEND_LINEUP\n");
+		assertTrue(current.text().endsWith("SUCCESS\n"));
+
+		//Offered without an id, and accepted without one
+		assertTrue(original.text().endsWith("FW\nLINEUP_OFFER\nNew Bo\n"));
+		feed(originalCoach, "ACCEPT_LINEUP\n");
+		assertTrue(original.text().endsWith("LINEUP_OFFER\nNew Bo\nLINEUP_RECEIVED\n10\n1.5\n2.5\nEND_LINEUP\n"));
+
+		//A lineup the server refuses gets no answer, as before
+		int sent = original.text().length();
+		feed(originalCoach, "SEND_LINEUP_TO\nNobody\n10\n1\n2\nEND_LINEUP\n");
+		assertEquals(sent, original.text().length());
+
+		feed(currentCoach, "QUIT\n");
+		currentCoach.end();
+		originalCoach.end();
+	}
+
+	@Test
+	void resumeTakesOverASessionWhoseConnectionStillLooksOpen() throws IOException {
+		RecordingConnection dropped = new RecordingConnection();
+		CoachSession old = new CoachSession(dropped);
+		feed(old, WireProtocol.TEXT_V2_REQUEST + "\nROOM " + ROOM + "\nCoach name:\nWifi Ana\nADD_PLAYER\n10\n");
+		String received = dropped.text();
+		String token = received.split("\n")[1];
+		RecordingConnection watching = new RecordingConnection();
+		CoachSession other = new CoachSession(watching);
+		feed(other, WireProtocol.TEXT_V2_REQUEST + "\nROOM " + ROOM + "\nCoach name:\nWifi Bo\n");
+
+		//No reset reached the server, the old connection is still open when the coach comes back
+		RecordingConnection resumed = new RecordingConnection();
+		CoachSession fresh = new CoachSession(resumed);
+		feed(fresh, WireProtocol.RESUME_REQUEST + " " + token + " " + received.length() + "\n");
+		assertEquals(WireProtocol.RESUMED + "\n", resumed.text());
+		assertTrue(dropped.isAborted());
+		assertFalse(old.isRunning());
+		assertEquals("Wifi Ana", fresh.getCoachName());
+
+		feed(fresh, "GET_LINEUP\n");
+		assertTrue(resumed.text().endsWith("LINEUP\n10\nEND_LINEUP\n"));
+		feed(other, "GET_ACTIVE_COACHES\n");
+		assertTrue(watching.text().endsWith("ACTIVE_COACHES\nWifi Ana\nEND_COACHES\n"));
+		assertFalse(watching.text().contains("COACH_DISCONNECTED"));
+
+		//The old connection closing later changes nothing
+		old.end();
+		feed(fresh, "QUIT\n");
+		fresh.end();
+		feed(other, "QUIT\n");
+		other.end();
+	}
+
+	@Test
+	void currentClientAnswersOffersById() throws IOException {
+		RecordingConnection receiving = new RecordingConnection();
+		CoachSession receiver = new CoachSession(receiving);
+		feed(receiver, WireProtocol.TEXT_V2_REQUEST + "\nROOM " + ROOM + "\nCoach name:\nNew Eva\n");
+		RecordingConnection sending = new RecordingConnection();
+		CoachSession sender = new CoachSession(sending);
+		feed(sender, WireProtocol.TEXT_V2_REQUEST + "\nROOM " + ROOM + "\nCoach name:\nNew Tom\n");
+		feed(sender, "ADD_PLAYER\n10\n");
+		//A player named like a message must not be read as one
+		assertTrue(sending.text().endsWith("\nSUCCESS\n"));
+		feed(sender, "SEND_LINEUP_TO\nNew Eva\n10\n3.0\n4.0\nEND_LINEUP\n");
+
+		String offer = receiving.text().substring(receiving.text().indexOf("LINEUP_OFFER\n"));
+		String[] lines = offer.split("\n");
+		assertEquals(3, lines.length);
+		assertEquals("New Tom", lines[1]);
+		feed(receiver, "DECLINE_LINEUP\n" + lines[2] + "\n");
+		assertTrue(receiving.text().endsWith("LINEUP_DECLINED\n"));
+
+		feed(receiver, "QUIT\n");
+		feed(sender, "QUIT\n");
+		receiver.end();
+		sender.end();
+	}
+}
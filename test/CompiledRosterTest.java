@@ -0,0 +1,67 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for CompiledRoster: a mapped roster lists and finds players exactly like the parsed XML it was compiled from.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompiledRosterTest {
+	@TempDir
+	Path directory;
+
+	private static String player(int number, String name, String position) {
+		return "<PLAYER><NUMBER>" + number + "</NUMBER><NAME>" + name + "</NAME><POSITION>" + position + "</POSITION></PLAYER>";
+	}
+
+	private static List<Integer> numbers(RosterStore.Snapshot snapshot) {
+		List<Integer> numbers = new ArrayList<>();
+		for (Player player : snapshot.getPlayers()) {
+			numbers.add(player.getNumber());
+		}
+		return numbers;
+	}
+
+	@Test
+	void mappedRosterKeepsFileOrder() throws IOException {
+		Path xml = directory.resolve("Club.xml");
+		Files.writeString(xml, "<ROSTER>" + player(10, "Ana Diaz", "FW") + player(1, "Luis Vega", "GK")
+				+ player(7, "Eva Soto", "MF") + "</ROSTER>");
+		RosterStore parsed = new RosterStore();
+		parsed.load(xml.toString());
+		assertFalse(parsed.snapshot() instanceof CompiledRoster);
+		assertTrue(Files.exists(CompiledRoster.pathFor(xml)));
+
+		RosterStore mapped = new RosterStore();
+		mapped.load(xml.toString());
+		assertTrue(mapped.snapshot() instanceof CompiledRoster);
+		assertEquals(List.of(10, 1, 7), numbers(parsed.snapshot()));
+		assertEquals(numbers(parsed.snapshot()), numbers(mapped.snapshot()));
+		assertEquals("Eva Soto", mapped.snapshot().find(7).getName());
+		assertEquals("GK", mapped.snapshot().find(1).getPosition());
+		assertNull(mapped.snapshot().find(2));
+	}
+
+	@Test
+	void indexLookupsMatchFindInBothForms() throws IOException {
+		Path xml = directory.resolve("Club.xml");
+		Files.writeString(xml, "<ROSTER>" + player(9, "Tom Ruiz", "FW") + player(4, "Bo Lira", "DF") + "</ROSTER>");
+		RosterStore parsed = new RosterStore();
+		parsed.load(xml.toString());
+		RosterStore mapped = new RosterStore();
+		mapped.load(xml.toString());
+		for (RosterStore.Snapshot snapshot : List.of(parsed.snapshot(), mapped.snapshot())) {
+			int index = snapshot.indexOf(4);
+			assertTrue(index >= 0);
+			assertEquals("Bo Lira", snapshot.nameAt(index));
+			assertEquals("DF", snapshot.positionAt(index));
+			assertEquals("Tom Ruiz", snapshot.nameAt(snapshot.indexOf(9)));
+			assertEquals(-1, snapshot.indexOf(5));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for LatencyHistogram's buckets and percentiles.
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.valueAtPercentile(99));
+	}
+
+	@Test
+	void smallValuesAreExact() {
+		for (long value = 0; value < 64; value++) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(value);
+			assertEquals(value, histogram.valueAtPercentile(50));
+		}
+	}
+
+	@Test
+	void largeValuesAreReportedAsTheTopOfTheirBucket() {
+		long[] values = {64, 65, 100, 1_000, 12_345, 1_000_000, 987_654_321L, Long.MAX_VALUE / 4};
+		for (long value : values) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(value);
+			histogram.record(value * 2);
+			assertWithinBucket(value, histogram.valueAtPercentile(50));
+			//The top percentile never reports more than the largest value recorded
+			assertEquals(value * 2, histogram.valueAtPercentile(100));
+		}
+	}
+
+	@Test
+	void neighbouringValuesShareABucketOnlyWhenClose() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(2_000);
+		histogram.record(2_010);
+		histogram.record(4_000);
+		assertEquals(histogram.valueAtPercentile(33), histogram.valueAtPercentile(66));
+		assertNotEquals(histogram.valueAtPercentile(66), histogram.valueAtPercentile(100));
+	}
+
+	@Test
+	void percentilesFollowTheDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 1_000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(1_000, histogram.getCount());
+		assertEquals(500.5, histogram.getMean(), 1e-9);
+		assertEquals(1_000, histogram.getMax());
+		assertWithinBucket(500, histogram.valueAtPercentile(50));
+		assertWithinBucket(990, histogram.valueAtPercentile(99));
+		assertEquals(1_000, histogram.valueAtPercentile(100));
+	}
+
+	@Test
+	void negativeValuesCountAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.valueAtPercentile(100));
+		assertEquals(1, histogram.getCount());
+	}
+
+	private static void assertWithinBucket(long expected, long reported) {
+		assertTrue(reported >= expected && reported <= expected + expected / 32, "expected about " + expected + ", got " + reported);
+	}
+}
@@ -0,0 +1,44 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the lineup mailboxes: expired offers are reported and a departed coach's empty mailbox is dropped.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LineupMailboxesTest {
+	private static final List<LineupEntry> LINEUP = List.of(new LineupEntry(10, 1, 2));
+
+	@Test
+	void expiredOffersAreReportedOnce() {
+		List<Long> expired = new ArrayList<>();
+		LineupMailbox mailbox = new LineupMailbox(expired::add);
+		mailbox.offer(new LineupOffer(1, "Ana", "main/Luis", LINEUP, 100), 0);
+		mailbox.offer(new LineupOffer(2, "Ana", "main/Luis", LINEUP, 300), 0);
+		assertEquals(300, mailbox.latestExpiryMillis());
+		mailbox.removeExpired(200);
+		mailbox.removeExpired(200);
+		assertEquals(List.of(1L), expired);
+		assertEquals(2, mailbox.take(2).getId());
+		assertTrue(mailbox.isEmpty());
+		assertEquals(0, mailbox.latestExpiryMillis());
+	}
+
+	@Test
+	void releasedMailboxIsDroppedOnceEmpty() {
+		LineupMailboxes mailboxes = new LineupMailboxes();
+		LineupOffer answered = mailboxes.post("Ana", "main/Luis", LINEUP);
+		mailboxes.take("main/Luis", answered.getId());
+		assertTrue(mailboxes.hasMailbox("main/Luis"));
+		mailboxes.release("main/Luis");
+		assertFalse(mailboxes.hasMailbox("main/Luis"));
+
+		//Still waiting, kept for the coach to come back for
+		mailboxes.post("Ana", "main/Eva", LINEUP);
+		mailboxes.release("main/Eva");
+		assertTrue(mailboxes.hasMailbox("main/Eva"));
+		assertEquals(1, mailboxes.pending("main/Eva").size());
+		assertNull(mailboxes.take("main/Nobody", 1));
+	}
+}
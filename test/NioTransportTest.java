@@ -0,0 +1,132 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the NIO transport over real sockets: replies queued while the coach is not reading, and the handoff of a
+//coach to the event loop of its room, also while the room's own roster is still loading.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NioTransportTest {
+	private ServerSocketChannel server;
+	private LineupEventLoop[] loops;
+
+	@BeforeEach
+	void listen() throws IOException {
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("localhost", 0));
+		loops = new LineupEventLoop[2];
+		for (int i = 0; i < loops.length; i++) {
+			loops[i] = new LineupEventLoop(i, loops);
+			loops[i].setDaemon(true);
+		}
+	}
+
+	@AfterEach
+	void stop() throws Exception {
+		for (LineupEventLoop loop : loops) {
+			loop.interrupt();
+		}
+		server.close();
+	}
+
+	//Connects a client and hands the accepted channel to the first loop, the way LineupServer's acceptor does.
+	private Socket connect() throws IOException {
+		Socket client = new Socket("localhost", server.socket().getLocalPort());
+		client.setSoTimeout(10_000);
+		SocketChannel accepted = server.accept();
+		loops[0].register(accepted);
+		return client;
+	}
+
+	//Reads until the text has been seen count times, returns everything read.
+	private static String readUntil(InputStream in, String text, int count) throws IOException {
+		StringBuilder received = new StringBuilder();
+		byte[] buffer = new byte[8192];
+		int seen = 0;
+		int from = 0;
+		while (seen < count) {
+			int read = in.read(buffer);
+			assertTrue(read > 0, "connection closed after " + seen + " of " + count);
+			received.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+			int at;
+			while ((at = received.indexOf(text, from)) >= 0) {
+				seen++;
+				from = at + text.length();
+			}
+		}
+		return received.toString();
+	}
+
+	@Test
+	void repliesQueuedWhileTheCoachIsNotReadingArriveInOrder() throws Exception {
+		loops[0].start();
+		loops[1].start();
+		try (Socket client = connect()) {
+			OutputStream out = client.getOutputStream();
+			//Far more replies than the outbox holds, so the loop stops reading until the coach catches up
+			int requests = 5000;
+			StringBuilder commands = new StringBuilder("Coach name:\nNio Ana\n");
+			for (int i = 0; i < requests; i++) {
+				commands.append("GET_LINEUP\n");
+			}
+			out.write(commands.toString().getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			Thread.sleep(300);
+			String received = readUntil(client.getInputStream(), "END_LINEUP\n", requests);
+			assertEquals(requests, received.split("LINEUP\nEND_LINEUP\n", -1).length - 1);
+			assertTrue(received.endsWith("END_LINEUP\n"));
+		}
+	}
+
+	@Test
+	void coachMovesToTheLoopOfItsRoomWithItsBufferedCommands() throws Exception {
+		LineupRooms.pin("nio-handoff", 1);
+		//Only the first loop runs: the coach's commands wait once it has been handed to the second
+		loops[0].start();
+		try (Socket client = connect()) {
+			OutputStream out = client.getOutputStream();
+			out.write((WireProtocol.JOIN_ROOM + " nio-handoff\nCoach name:\nNio Luis\nGET_LINEUP\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			client.setSoTimeout(500);
+			assertThrows(SocketTimeoutException.class, () -> client.getInputStream().read());
+
+			client.setSoTimeout(10_000);
+			loops[1].start();
+			String received = readUntil(client.getInputStream(), "END_LINEUP\n", 1);
+			assertTrue(received.contains("LINEUP\nEND_LINEUP\n"));
+		}
+	}
+
+	@Test
+	void coachOfARoomWithItsOwnRosterIsServedOnceTheRosterIsLoaded(@TempDir Path roomsDirectory) throws Exception {
+		Files.writeString(roomsDirectory.resolve("nio-club.xml"),
+				"<ROSTER><PLAYER><NUMBER>7</NUMBER><NAME>Nio Marta</NAME><POSITION>MF</POSITION></PLAYER></ROSTER>");
+		LineupRooms.configure(roomsDirectory);
+		//Same loop as the login, so the coach only waits for the roster
+		LineupRooms.pin("nio-club", 0);
+		loops[0].start();
+		try (Socket client = connect()) {
+			OutputStream out = client.getOutputStream();
+			out.write((WireProtocol.JOIN_ROOM + " nio-club\nCoach name:\nNio Pablo\nGET_PLAYERS\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			String received = readUntil(client.getInputStream(), "Nio Marta", 1);
+			assertTrue(received.contains("7\nNio Marta\nMF\n"));
+		} finally {
+			LineupRooms.configure(null);
+		}
+	}
+}
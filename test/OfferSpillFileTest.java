@@ -0,0 +1,105 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the lineup offer log: replaying it and compacting it when it is reopened.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OfferSpillFileTest {
+	private static final long NOW = 1_000_000;
+
+	@TempDir
+	Path directory;
+
+	private static LineupOffer offer(long id, long expiresAtMillis) {
+		return new LineupOffer(id, "Ana", "main/Luis", List.of(new LineupEntry(10, 120.5, 300), new LineupEntry(7, 0, 0)),
+				expiresAtMillis);
+	}
+
+	private static List<Long> ids(List<LineupOffer> offers) {
+		List<Long> ids = new ArrayList<>();
+		for (LineupOffer offer : offers) {
+			ids.add(offer.getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void missingLogHasNoOffers() throws IOException {
+		assertTrue(OfferSpillFile.readWaiting(directory.resolve("none.log"), NOW).isEmpty());
+	}
+
+	@Test
+	void replaysOffersThatWereNeitherAnsweredNorExpired() throws Exception {
+		Path file = directory.resolve("offers.log");
+		OfferSpillFile spill = new OfferSpillFile(file, List.of());
+		spill.appendOffer(offer(1, NOW + 10));
+		spill.appendOffer(offer(2, NOW + 10));
+		spill.appendOffer(offer(3, NOW - 1));
+		spill.appendOffer(offer(4, NOW + 10));
+		spill.appendDone(2);
+		spill.close();
+
+		List<LineupOffer> waiting = OfferSpillFile.readWaiting(file, NOW);
+		assertEquals(List.of(1L, 4L), ids(waiting));
+		LineupOffer restored = waiting.get(0);
+		assertEquals("Ana", restored.getFromCoach());
+		assertEquals("main/Luis", restored.getToCoach());
+		assertEquals(NOW + 10, restored.getExpiresAtMillis());
+		assertEquals(10, restored.getLineup().get(0).getPlayerNumber());
+		assertEquals(120.5, restored.getLineup().get(0).getX(), 1e-9);
+	}
+
+	@Test
+	void reopeningCompactsTheLogToTheWaitingOffers() throws Exception {
+		Path file = directory.resolve("offers.log");
+		OfferSpillFile spill = new OfferSpillFile(file, List.of());
+		for (long id = 1; id <= 100; id++) {
+			spill.appendOffer(offer(id, NOW + 10));
+			if (id != 50) {
+				spill.appendDone(id);
+			}
+		}
+		spill.close();
+		long before = Files.size(file);
+
+		List<LineupOffer> waiting = OfferSpillFile.readWaiting(file, NOW);
+		new OfferSpillFile(file, waiting).close();
+		assertTrue(Files.size(file) < before / 50, "compacted to " + Files.size(file) + " of " + before + " bytes");
+		assertEquals(List.of(50L), ids(OfferSpillFile.readWaiting(file, NOW)));
+		assertFalse(Files.exists(directory.resolve("offers.log.tmp")));
+	}
+
+	@Test
+	void runningLogCompactsOnceMostRecordsAreDead() throws Exception {
+		Path file = directory.resolve("offers.log");
+		OfferSpillFile spill = new OfferSpillFile(file, List.of());
+		long later = System.currentTimeMillis() + 60_000;
+		for (long id = 1; id <= 5000; id++) {
+			spill.appendOffer(offer(id, later));
+			if (id % 1000 != 0) {
+				spill.appendDone(id);
+			}
+		}
+		spill.close();
+		//10000 records were appended, fewer than two compaction thresholds are left
+		assertTrue(Files.size(file) < 2048 * 30, "log is " + Files.size(file) + " bytes");
+		assertEquals(List.of(1000L, 2000L, 3000L, 4000L, 5000L), ids(OfferSpillFile.readWaiting(file, NOW)));
+	}
+
+	@Test
+	void recordCutShortEndsTheLog() throws Exception {
+		Path file = directory.resolve("offers.log");
+		OfferSpillFile spill = new OfferSpillFile(file, List.of(offer(1, NOW + 10), offer(2, NOW + 10)));
+		spill.close();
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+		assertEquals(List.of(1L), ids(OfferSpillFile.readWaiting(file, NOW)));
+	}
+}
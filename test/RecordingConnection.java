@@ -0,0 +1,76 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Coach connection for tests: queues what the session sends on its outbox, like a real connection, and keeps every payload
+//drained from it as if it had been written to the coach.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class RecordingConnection implements CoachConnection {
+	private final CoachOutbox outbox = new CoachOutbox();
+	private final List<ByteBuffer> payloads = new ArrayList<>();
+	private boolean closed;
+	private boolean aborted;
+
+	@Override
+	public void send(OutboundMessage message) {
+		outbox.add(message);
+	}
+
+	@Override
+	public void deliver(OutboundMessage message) {
+		outbox.offer(message);
+	}
+
+	@Override
+	public void useBinaryOutput() {
+		outbox.useBinary();
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+	}
+
+	@Override
+	public synchronized void abort() {
+		aborted = true;
+	}
+
+	@Override
+	public CoachOutbox getOutbox() {
+		return outbox;
+	}
+
+	@Override
+	public void joinedRoom(LineupRoom room) {
+		room.awaitRoster();
+	}
+
+	//Every payload sent so far.
+	synchronized List<ByteBuffer> payloads() {
+		outbox.drainTo(payloads, Integer.MAX_VALUE);
+		List<ByteBuffer> copies = new ArrayList<>();
+		for (ByteBuffer payload : payloads) {
+			copies.add(payload.duplicate());
+		}
+		return copies;
+	}
+
+	//Everything sent so far as text, only meaningful while the coach reads text.
+	synchronized String text() {
+		StringBuilder text = new StringBuilder();
+		for (ByteBuffer payload : payloads()) {
+			text.append(StandardCharsets.UTF_8.decode(payload));
+		}
+		return text.toString();
+	}
+
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	synchronized boolean isAborted() {
+		return aborted;
+	}
+}
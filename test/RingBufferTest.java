@@ -0,0 +1,99 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the multi-producer ring behind ServerLog: empty, full, wrapping around and concurrent producers.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+	@Test
+	void emptyRingPollsNull() {
+		assertNull(new RingBuffer<String>(4).poll());
+	}
+
+	@Test
+	void capacityIsRoundedUpToAPowerOfTwo() {
+		RingBuffer<Integer> ring = new RingBuffer<>(3);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer(i));
+		}
+		assertFalse(ring.offer(4));
+	}
+
+	@Test
+	void fullRingRefusesUntilAnElementIsTaken() {
+		RingBuffer<Integer> ring = new RingBuffer<>(2);
+		assertTrue(ring.offer(1));
+		assertTrue(ring.offer(2));
+		assertFalse(ring.offer(3));
+		assertEquals(1, ring.poll());
+		assertTrue(ring.offer(3));
+		assertEquals(2, ring.poll());
+		assertEquals(3, ring.poll());
+		assertNull(ring.poll());
+	}
+
+	@Test
+	void keepsOrderAcrossManyLaps() {
+		RingBuffer<Integer> ring = new RingBuffer<>(4);
+		int next = 0;
+		for (int taken = 0; taken < 1000;) {
+			while (ring.offer(next)) {
+				next++;
+			}
+			for (Integer element; (element = ring.poll()) != null; taken++) {
+				assertEquals(taken, element);
+			}
+		}
+	}
+
+	@Test
+	void everyElementFromConcurrentProducersArrivesOnce() throws InterruptedException {
+		int producers = 4;
+		int perProducer = 50_000;
+		RingBuffer<Integer> ring = new RingBuffer<>(1024);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int first = p * perProducer;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = first; i < first + perProducer; i++) {
+					while (!ring.offer(i)) {
+						Thread.onSpinWait();
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		boolean[] seen = new boolean[producers * perProducer];
+		//Elements of one producer arrive in the order it offered them
+		int[] lastOf = new int[producers];
+		java.util.Arrays.fill(lastOf, -1);
+		for (int received = 0; received < seen.length;) {
+			Integer element = ring.poll();
+			if (element == null) {
+				Thread.onSpinWait();
+				continue;
+			}
+			assertFalse(seen[element]);
+			seen[element] = true;
+			assertTrue(element > lastOf[element / perProducer]);
+			lastOf[element / perProducer] = element;
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(ring.poll());
+	}
+}
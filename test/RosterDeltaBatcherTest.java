@@ -0,0 +1,53 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for RosterDeltaBatcher: versions, batching within the window and the encoded ROSTER_DELTA message.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RosterDeltaBatcherTest {
+	private static String text(OutboundMessage message) {
+		return StandardCharsets.UTF_8.decode(message.payload(false)).toString();
+	}
+
+	@Test
+	void changesWithinTheWindowArePushedAsOneVersionedBatch() throws InterruptedException {
+		LinkedBlockingQueue<OutboundMessage> pushed = new LinkedBlockingQueue<>();
+		RosterDeltaBatcher batcher = new RosterDeltaBatcher(pushed::add);
+		assertEquals("ROSTER_VERSION\n0\n", text(batcher.getVersionMessage()));
+
+		batcher.record(List.of(new Player(10, "Ana Lopez", "MF")), List.of(7));
+		batcher.record(List.of(), List.of(3));
+		assertEquals(3, batcher.getVersion());
+		assertEquals("ROSTER_VERSION\n3\n", text(batcher.getVersionMessage()));
+
+		OutboundMessage message = pushed.poll(5, TimeUnit.SECONDS);
+		assertNotNull(message);
+		assertEquals("ROSTER_DELTA\n10 PUT 1\nAna Lopez\nMF\n7 REMOVE 2\n3 REMOVE 3\nEND_DELTA\n", text(message));
+		assertNull(pushed.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void binaryBatchCarriesTheFirstVersionAndWholePlayers() throws InterruptedException {
+		LinkedBlockingQueue<OutboundMessage> pushed = new LinkedBlockingQueue<>();
+		RosterDeltaBatcher batcher = new RosterDeltaBatcher(pushed::add);
+		batcher.record(List.of(), List.of(5));
+		pushed.poll(5, TimeUnit.SECONDS);
+		batcher.record(List.of(new Player(9, "Luis", "ST")), List.of());
+
+		java.nio.ByteBuffer frame = pushed.poll(5, TimeUnit.SECONDS).payload(true);
+		WireProtocol.getVarint(frame);
+		assertEquals(WireProtocol.ROSTER_DELTA, frame.get());
+		assertEquals(2, WireProtocol.getVarlong(frame));
+		assertEquals(1, WireProtocol.getVarint(frame));
+		assertEquals(9, WireProtocol.getVarint(frame));
+		assertEquals(RosterDelta.Op.PUT.ordinal(), frame.get());
+		assertEquals("Luis", WireProtocol.getString(frame));
+		assertEquals("ST", WireProtocol.getString(frame));
+		assertFalse(frame.hasRemaining());
+	}
+}
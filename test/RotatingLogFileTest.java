@@ -0,0 +1,56 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for RotatingLogFile: files roll over at the size limit counted in encoded bytes, keeping the configured number.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RotatingLogFileTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void nonAsciiLinesAreCountedInBytes() throws Exception {
+		Path path = directory.resolve("server.log");
+		//14 characters and 17 bytes with its newline: three lines are 42 characters but 51 bytes
+		String line = "coach=José 😀";
+		assertEquals(17, (line + "\n").getBytes(StandardCharsets.UTF_8).length);
+		RotatingLogFile log = new RotatingLogFile(path, 45, 2);
+		for (int i = 0; i < 3; i++) {
+			log.write(line);
+		}
+		log.close();
+		//Two lines fit in 45 bytes, the third rolls over
+		assertEquals(17, Files.size(path));
+		assertEquals(34, Files.size(directory.resolve("server.log.1")));
+	}
+
+	@Test
+	void keepsOnlyTheConfiguredNumberOfOldFiles() throws Exception {
+		Path path = directory.resolve("server.log");
+		RotatingLogFile log = new RotatingLogFile(path, 10, 2);
+		for (int i = 0; i < 5; i++) {
+			log.write("line-" + i + "..");
+		}
+		log.close();
+		assertEquals("line-4..\n", Files.readString(path));
+		assertEquals("line-3..\n", Files.readString(directory.resolve("server.log.1")));
+		assertEquals("line-2..\n", Files.readString(directory.resolve("server.log.2")));
+		assertFalse(Files.exists(directory.resolve("server.log.3")));
+	}
+
+	@Test
+	void appendingToAnExistingFileCountsWhatItHolds() throws Exception {
+		Path path = directory.resolve("server.log");
+		Files.writeString(path, "x".repeat(35) + "\n");
+		RotatingLogFile log = new RotatingLogFile(path, 40, 1);
+		log.write("next");
+		log.close();
+		assertEquals("next\n", Files.readString(path));
+		assertEquals(36, Files.size(directory.resolve("server.log.1")));
+	}
+}
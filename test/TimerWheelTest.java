@@ -0,0 +1,49 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the timing wheel behind heartbeats and parked sessions: starting, firing, cancelling and waiting several turns.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+	@Test
+	void nothingFiresBeforeTheWheelIsStarted() throws InterruptedException {
+		TimerWheel wheel = new TimerWheel("test-timers", 1, TimeUnit.MILLISECONDS, 8);
+		CountDownLatch fired = new CountDownLatch(1);
+		wheel.schedule(fired::countDown, 1, TimeUnit.MILLISECONDS);
+		assertFalse(fired.await(100, TimeUnit.MILLISECONDS));
+		wheel.start();
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void cancelledTimeoutNeverRuns() throws InterruptedException {
+		TimerWheel wheel = new TimerWheel("test-timers", 1, TimeUnit.MILLISECONDS, 8);
+		wheel.start();
+		CountDownLatch cancelledFired = new CountDownLatch(1);
+		CountDownLatch laterFired = new CountDownLatch(1);
+		wheel.schedule(cancelledFired::countDown, 5, TimeUnit.MILLISECONDS).cancel();
+		wheel.schedule(laterFired::countDown, 20, TimeUnit.MILLISECONDS);
+		assertTrue(laterFired.await(5, TimeUnit.SECONDS));
+		assertEquals(1, cancelledFired.getCount());
+	}
+
+	@Test
+	void delayLongerThanOneTurnWaitsForItsRound() throws InterruptedException {
+		//Eight 1 ms slots, so 50 ms goes around the wheel several times first
+		TimerWheel wheel = new TimerWheel("test-timers", 1, TimeUnit.MILLISECONDS, 8);
+		wheel.start();
+		//Wait for the wheel to turn once, a wheel that is behind catches up on its ticks without sleeping
+		CountDownLatch turning = new CountDownLatch(1);
+		wheel.schedule(turning::countDown, 1, TimeUnit.MILLISECONDS);
+		assertTrue(turning.await(5, TimeUnit.SECONDS));
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+		wheel.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+		//Delays are counted in whole ticks from the current one, so part of the first may already have passed
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(45));
+	}
+}
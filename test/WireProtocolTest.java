@@ -0,0 +1,99 @@
+//Authors: Nicolas Diaz-Aguilar & Vicente Lyon
+//Tests for the binary framing: varints, strings and the length prefix added by FrameWriter.toFrame.
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class WireProtocolTest {
+	//Payload of a frame, positioned past its length prefix and opcode.
+	private static ByteBuffer payload(byte[] frame) {
+		ByteBuffer in = ByteBuffer.wrap(frame);
+		int length = WireProtocol.getVarint(in);
+		assertEquals(in.remaining(), length);
+		in.get();
+		return in;
+	}
+
+	@Test
+	void varintsUseOneByteBelow128AndRoundTrip() {
+		long[] values = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, 0xFFFFFFFFL, Long.MAX_VALUE, -1L};
+		for (long value : values) {
+			byte[] frame = new WireProtocol.FrameWriter(WireProtocol.ROSTER_VERSION).putVarlong(value).toFrame();
+			assertEquals(value, WireProtocol.getVarlong(payload(frame)));
+		}
+		assertEquals(3, new WireProtocol.FrameWriter(WireProtocol.ROSTER_VERSION).putVarint(127).toFrame().length);
+		assertEquals(4, new WireProtocol.FrameWriter(WireProtocol.ROSTER_VERSION).putVarint(128).toFrame().length);
+	}
+
+	@Test
+	void negativeVarintsAreSentUnsigned() {
+		byte[] frame = new WireProtocol.FrameWriter(WireProtocol.LINEUP).putVarint(-1).toFrame();
+		assertEquals(-1, WireProtocol.getVarint(payload(frame)));
+	}
+
+	@Test
+	void lengthPrefixCoversOpcodeAndPayload() {
+		String name = "Ana López";
+		byte[] frame = new WireProtocol.FrameWriter(WireProtocol.COACH_DISCONNECTED).putString(name).toFrame();
+		int utf8 = name.getBytes(StandardCharsets.UTF_8).length;
+		ByteBuffer in = ByteBuffer.wrap(frame);
+		assertEquals(1 + 1 + utf8, WireProtocol.getVarint(in));
+		assertEquals(WireProtocol.COACH_DISCONNECTED, in.get());
+		assertEquals(name, WireProtocol.getString(in));
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void longFramesGetMultiByteLengthPrefix() {
+		WireProtocol.FrameWriter writer = new WireProtocol.FrameWriter(WireProtocol.PLAYER_LIST);
+		for (int i = 0; i < 200; i++) {
+			writer.putShort((short) i);
+		}
+		byte[] frame = writer.toFrame();
+		assertEquals(2 + 1 + 400, frame.length);
+		ByteBuffer in = payload(frame);
+		for (int i = 0; i < 200; i++) {
+			assertEquals(i, in.getShort());
+		}
+	}
+
+	@Test
+	void fieldUnitsAreTenthsOfAPixelAndSaturate() {
+		assertEquals(1234, WireProtocol.toFieldUnits(123.4));
+		assertEquals(123.4, WireProtocol.fromFieldUnits(WireProtocol.toFieldUnits(123.4)), 1e-9);
+		assertEquals(Short.MAX_VALUE, WireProtocol.toFieldUnits(1e9));
+		assertEquals(Short.MIN_VALUE, WireProtocol.toFieldUnits(-1e9));
+	}
+
+	@Test
+	void rejectsMalformedInput() {
+		byte[] endless = new byte[11];
+		java.util.Arrays.fill(endless, (byte) 0x80);
+		assertThrows(IllegalArgumentException.class, () -> WireProtocol.getVarlong(ByteBuffer.wrap(endless)));
+		ByteBuffer truncated = ByteBuffer.wrap(new byte[] {5, 'a', 'b'});
+		assertThrows(IllegalArgumentException.class, () -> WireProtocol.getString(truncated));
+	}
+
+	@Test
+	void commandNamesMatchTheTextProtocol() {
+		assertEquals("GET_PLAYERS", WireProtocol.commandName(WireProtocol.GET_PLAYERS));
+		assertEquals("PONG", WireProtocol.commandName(WireProtocol.PONG));
+		assertNull(WireProtocol.commandName((byte) 0));
+		assertNull(WireProtocol.commandName(WireProtocol.PING));
+		assertTrue(WireProtocol.isCommand("SEND_LINEUP_TO"));
+		assertFalse(WireProtocol.isCommand("Coach name:"));
+	}
+
+	@Test
+	void roomNamesCannotEscapeTheRoomsDirectory() {
+		assertTrue(WireProtocol.isRoomName("Club A.2024_u-17"));
+		assertFalse(WireProtocol.isRoomName(""));
+		assertFalse(WireProtocol.isRoomName(".."));
+		assertFalse(WireProtocol.isRoomName("../etc"));
+		assertFalse(WireProtocol.isRoomName("a/b"));
+		assertFalse(WireProtocol.isRoomName("x".repeat(WireProtocol.MAX_ROOM_NAME_LENGTH + 1)));
+	}
+}